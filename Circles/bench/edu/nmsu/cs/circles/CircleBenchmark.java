@@ -0,0 +1,148 @@
+package edu.nmsu.cs.circles;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-call costs of the circle operations: one intersection test, one construction, one move or
+ * scale. Each call works on the next circle (and its neighbor) in the data set, so the branch
+ * behavior of the tests follows the chosen distribution. Run with "-prof gc" (the ant bench target
+ * does) to see gc.alloc.rate.norm, the bytes allocated per call; constructing a circle also
+ * allocates its Point, while the intersects(), place() and rule paths should show zero.
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CircleBenchmark
+{
+	@Param({ "1000", "1000000" })
+	public int	size;
+
+	@Param({ "uniform", "clustered", "overlap" })
+	public String	distribution;
+
+	private CircleData	data;
+
+	private Circle1[]		circle1s;
+
+	private Circle2[]		circle2s;
+
+	private Circle1			reused1;
+
+	private Circle2			reused2;
+
+	private int					at;
+
+	/** flips every pass over the data so moves and scales do not drift off **/
+	private double			sign;
+
+	@Setup
+	public void setup()
+	{
+		data = new CircleData(size, distribution);
+		circle1s = data.circle1s();
+		circle2s = data.circle2s();
+		reused1 = new Circle1(0, 0, 0);
+		reused2 = new Circle2(0, 0, 0);
+		at = 0;
+		sign = 1;
+	}
+
+	private int next()
+	{
+		if (++at == size - 1)
+		{
+			at = 0;
+			sign = -sign;
+		}
+		return at;
+	}
+
+	@Benchmark
+	public boolean circle1Intersects()
+	{
+		int i = next();
+		return circle1s[i].intersects(circle1s[i + 1]);
+	}
+
+	@Benchmark
+	public boolean circle2Intersects()
+	{
+		int i = next();
+		return circle2s[i].intersects(circle2s[i + 1]);
+	}
+
+	/** the Circle1 test on flat arrays, as the bulk engines run it **/
+	@Benchmark
+	public boolean circle1Rule()
+	{
+		int i = next();
+		return IntersectionRule.CIRCLE1.test(data.x[i], data.y[i], data.r[i], data.x[i + 1],
+				data.y[i + 1]);
+	}
+
+	/** the Circle2 test on flat arrays, as the bulk engines run it **/
+	@Benchmark
+	public boolean circle2Rule()
+	{
+		int i = next();
+		return IntersectionRule.CIRCLE2.test(data.x[i], data.y[i], data.r[i], data.x[i + 1],
+				data.y[i + 1]);
+	}
+
+	@Benchmark
+	public Circle1 construct()
+	{
+		int i = next();
+		return new Circle1(data.x[i], data.y[i], data.r[i]);
+	}
+
+	/** what CircleRun does per pair: build both circles, then test both ways **/
+	@Benchmark
+	public int constructAndIntersect()
+	{
+		int i = next();
+		Circle1 a = new Circle1(data.x[i], data.y[i], data.r[i]);
+		Circle2 b = new Circle2(data.x[i + 1], data.y[i + 1], data.r[i + 1]);
+		return (a.intersects(b) ? 1 : 0) | (b.intersects(a) ? 2 : 0);
+	}
+
+	/** what CircleBatch does per pair: reuse both circles, then test both ways **/
+	@Benchmark
+	public int placeAndIntersect()
+	{
+		int i = next();
+		reused1.place(data.x[i], data.y[i], data.r[i]);
+		reused2.place(data.x[i + 1], data.y[i + 1], data.r[i + 1]);
+		return (reused1.intersects(reused2) ? 1 : 0) | (reused2.intersects(reused1) ? 2 : 0);
+	}
+
+	@Benchmark
+	public Point moveBy()
+	{
+		int i = next();
+		return circle1s[i].moveBy(sign * 0.5, sign * 0.5);
+	}
+
+	@Benchmark
+	public double scale()
+	{
+		int i = next();
+		return circle1s[i].scale(sign * 0.5);
+	}
+
+}
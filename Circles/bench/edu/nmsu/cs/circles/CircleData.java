@@ -0,0 +1,79 @@
+package edu.nmsu.cs.circles;
+
+import java.util.Random;
+
+/**
+ * Generates circle data sets for the benchmarks. Every set is made from a fixed seed, so runs are
+ * comparable, and comes in three shapes:
+ *
+ * - uniform: centers spread evenly over a square sized so a circle overlaps a few others
+ *
+ * - clustered: centers bunched into a handful of tight gaussian clusters
+ *
+ * - overlap: the uniform layout with radii large enough that most circles hit dozens of others
+ **/
+class CircleData
+{
+	final double[]	x;
+
+	final double[]	y;
+
+	final double[]	r;
+
+	CircleData(int size, String distribution)
+	{
+		x = new double[size];
+		y = new double[size];
+		r = new double[size];
+		Random random = new Random(371);
+		// keep about the same number of circles per unit area at every size
+		double side = Math.sqrt(size) * 10;
+		double[] cx = new double[16], cy = new double[16];
+		for (int k = 0; k < cx.length; k++)
+		{
+			cx[k] = random.nextDouble() * side;
+			cy[k] = random.nextDouble() * side;
+		}
+		for (int i = 0; i < size; i++)
+		{
+			if (distribution.equals("uniform"))
+			{
+				x[i] = random.nextDouble() * side;
+				y[i] = random.nextDouble() * side;
+				r[i] = 1 + random.nextDouble() * 4;
+			}
+			else if (distribution.equals("clustered"))
+			{
+				int k = random.nextInt(cx.length);
+				x[i] = cx[k] + random.nextGaussian() * side / 40;
+				y[i] = cy[k] + random.nextGaussian() * side / 40;
+				r[i] = 1 + random.nextDouble() * 4;
+			}
+			else if (distribution.equals("overlap"))
+			{
+				x[i] = random.nextDouble() * side;
+				y[i] = random.nextDouble() * side;
+				r[i] = 10 + random.nextDouble() * 20;
+			}
+			else
+				throw new IllegalArgumentException("unknown distribution " + distribution);
+		}
+	}
+
+	Circle1[] circle1s()
+	{
+		Circle1[] circles = new Circle1[x.length];
+		for (int i = 0; i < circles.length; i++)
+			circles[i] = new Circle1(x[i], y[i], r[i]);
+		return circles;
+	}
+
+	Circle2[] circle2s()
+	{
+		Circle2[] circles = new Circle2[x.length];
+		for (int i = 0; i < circles.length; i++)
+			circles[i] = new Circle2(x[i], y[i], r[i]);
+		return circles;
+	}
+
+}
@@ -0,0 +1,157 @@
+package edu.nmsu.cs.circles;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole-set intersection costs: every pair by brute force, the sort-and-sweep CollisionDetector on
+ * one thread and on the common pool, and one CollisionTracker tick (move every circle a little,
+ * then update). Each benchmark only sets up the state it uses. The brute force run is quadratic,
+ * so it has sizes of its own that stop short of 1M; comparing sweepSequential with sweepParallel at
+ * 1M shows how the detector scales with cores.
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollisionBenchmark
+{
+	/**
+	 * The circles and the detectors that sweep them
+	 **/
+	@State(Scope.Benchmark)
+	public static class Data
+	{
+		@Param({ "1000", "10000", "1000000" })
+		public int								size;
+
+		@Param({ "uniform", "clustered", "overlap" })
+		public String							distribution;
+
+		@Param({ "CIRCLE1", "CIRCLE2" })
+		public IntersectionRule		rule;
+
+		Circle[]									circles;
+
+		private ForkJoinPool			single;
+
+		CollisionDetector					sequential;
+
+		CollisionDetector					parallel;
+
+		@Setup(Level.Trial)
+		public void setup()
+		{
+			circles = circles(size, distribution, rule);
+			single = new ForkJoinPool(1);
+			sequential = new CollisionDetector(rule, single);
+			parallel = new CollisionDetector(rule);
+		}
+
+		@TearDown(Level.Trial)
+		public void teardown()
+		{
+			single.shutdown();
+		}
+	}
+
+	/**
+	 * The circles for the brute force run, without the 1M size
+	 **/
+	@State(Scope.Benchmark)
+	public static class SmallData
+	{
+		@Param({ "1000", "10000" })
+		public int								size;
+
+		@Param({ "uniform", "clustered", "overlap" })
+		public String							distribution;
+
+		@Param({ "CIRCLE1", "CIRCLE2" })
+		public IntersectionRule		rule;
+
+		Circle[]									circles;
+
+		@Setup(Level.Trial)
+		public void setup()
+		{
+			circles = circles(size, distribution, rule);
+		}
+	}
+
+	/**
+	 * A tracker over the Data circles, loaded once per trial
+	 **/
+	@State(Scope.Benchmark)
+	public static class Tracking
+	{
+		CollisionTracker	tracker;
+
+		double						sign;
+
+		@Setup(Level.Trial)
+		public void setup(Data data)
+		{
+			tracker = new CollisionTracker(data.rule);
+			for (Circle c : data.circles)
+				tracker.add(c);
+			tracker.update();
+			sign = 1;
+		}
+	}
+
+	@Benchmark
+	public int bruteForce(SmallData data)
+	{
+		Circle[] circles = data.circles;
+		int count = 0;
+		for (int i = 0; i < circles.length; i++)
+			for (int j = i + 1; j < circles.length; j++)
+				if (data.rule.test(circles[i], circles[j]))
+					count++;
+		return count;
+	}
+
+	@Benchmark
+	public long[] sweepSequential(Data data)
+	{
+		return data.sequential.findIntersections(data.circles);
+	}
+
+	@Benchmark
+	public long[] sweepParallel(Data data)
+	{
+		return data.parallel.findIntersections(data.circles);
+	}
+
+	@Benchmark
+	public int trackerTick(Data data, Tracking tracking)
+	{
+		tracking.sign = -tracking.sign;
+		for (Circle c : data.circles)
+			c.moveBy(tracking.sign * 0.1, tracking.sign * 0.1);
+		return tracking.tracker.update().size();
+	}
+
+	private static Circle[] circles(int size, String distribution, IntersectionRule rule)
+	{
+		CircleData data = new CircleData(size, distribution);
+		return rule == IntersectionRule.CIRCLE1 ? data.circle1s() : data.circle2s();
+	}
+
+}
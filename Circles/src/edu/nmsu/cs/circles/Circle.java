@@ -28,6 +28,17 @@ public abstract class Circle
 		this.radius = radius;
 	}
 
+	/**
+	 * Reposition and resize this circle in place, exactly as if it had just been constructed with
+	 * these arguments. Batch code uses this to reuse one circle object per record.
+	 **/
+	void place(double x, double y, double radius)
+	{
+		center.x = x;
+		center.y = y;
+		this.radius = radius;
+	}
+
 	/**
 	 * Change size of circle
 	 * 
@@ -8,6 +8,11 @@ public class Circle2 extends Circle
 		super(y, x, radius);
 	}
 
+	void place(double x, double y, double radius)
+	{
+		super.place(y, x, radius);
+	}
+
 	public boolean intersects(Circle other)
 	{
 		double d;
@@ -0,0 +1,340 @@
+package edu.nmsu.cs.circles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Batch mode for CircleRun: streams a file of circle pairs through both intersects() methods.
+ *
+ * Input is read through memory-mapped windows of the file, so memory use stays the same no matter
+ * how big the file is, and one Circle1 and one Circle2 are reused for every record. Two formats are
+ * accepted:
+ *
+ * - csv: one pair per line, "x1,y1,r1,x2,y2,r2"; blank lines and lines starting with '#' are
+ * skipped. Output is one line per pair, "c1,c2", where c1 is what Circle 1 says and c2 is what
+ * Circle 2 says.
+ *
+ * - bin: records of six big-endian doubles (48 bytes) in the same order, as written by
+ * DataOutputStream.writeDouble(). Output is one byte per pair, bit 0 set if Circle 1 says true and
+ * bit 1 set if Circle 2 says true.
+ *
+ * Progress (records and throughput) is reported on stderr about once a second.
+ **/
+public class CircleBatch
+{
+	/** bytes per binary record: six doubles **/
+	static final int							RECORD			= 48;
+
+	/** how much of the input file is mapped at a time; a whole number of binary records **/
+	static final int							WINDOW			= RECORD << 20;
+
+	/** output is buffered in this many bytes before being written to the channel **/
+	static final int							OUT_BUFFER	= 1 << 20;
+
+	private static final double[]	POW10				= { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+			1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private static final byte[]		TRUE				= "true".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[]		FALSE				= "false".getBytes(StandardCharsets.US_ASCII);
+
+	private final Circle1					c1					= new Circle1(0, 0, 0);
+
+	private final Circle2					c2					= new Circle2(0, 0, 0);
+
+	private final FileChannel			out;
+
+	private final ByteBuffer			outBuffer		= ByteBuffer.allocateDirect(OUT_BUFFER);
+
+	/** current input window and read position in it (used by the csv parser) **/
+	private ByteBuffer						in;
+
+	private int										pos;
+
+	private long									line;
+
+	private long									records;
+
+	private long									started;
+
+	private long									lastReport;
+
+	private CircleBatch(FileChannel out)
+	{
+		this.out = out;
+	}
+
+	/**
+	 * Run every circle pair in a file through both intersects() methods.
+	 *
+	 * @param format
+	 *          is "csv" or "bin"
+	 * @param input
+	 *          is the path of the file of circle pairs
+	 * @param output
+	 *          is the path to write results to
+	 * @return the number of pairs processed
+	 **/
+	public static long run(String format, String input, String output) throws IOException
+	{
+		boolean binary;
+		if (format.equals("csv"))
+			binary = false;
+		else if (format.equals("bin"))
+			binary = true;
+		else
+			throw new IllegalArgumentException("format must be csv or bin, not " + format);
+		try (FileChannel in = FileChannel.open(Paths.get(input), StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(Paths.get(output), StandardOpenOption.WRITE,
+						StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			CircleBatch batch = new CircleBatch(out);
+			batch.started = batch.lastReport = System.nanoTime();
+			if (binary)
+				batch.readBinary(in);
+			else
+				batch.readCsv(in);
+			batch.flush();
+			batch.report(in.size(), true);
+			return batch.records;
+		}
+	}
+
+	/**
+	 * Map the file a window at a time. A window always ends on a line break (or the end of the
+	 * file), so lines never straddle two windows.
+	 **/
+	private void readCsv(FileChannel channel) throws IOException
+	{
+		long size = channel.size();
+		long offset = 0;
+		while (offset < size)
+		{
+			int length = (int) Math.min(WINDOW, size - offset);
+			in = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+			boolean last = offset + length == size;
+			int lineStart = 0;
+			while (lineStart < length)
+			{
+				int lineEnd = lineStart;
+				while (lineEnd < length && in.get(lineEnd) != '\n')
+					lineEnd++;
+				if (lineEnd == length && !last)
+					break;
+				line++;
+				pos = lineStart;
+				parseLine(lineEnd);
+				lineStart = lineEnd + 1;
+			}
+			if (lineStart == 0 && !last)
+				throw new IOException("line " + (line + 1) + " is longer than " + WINDOW + " bytes");
+			offset += lineStart;
+			report(offset, false);
+		}
+	}
+
+	private void readBinary(FileChannel channel) throws IOException
+	{
+		long size = channel.size();
+		if (size % RECORD != 0)
+			throw new IOException("binary input is not a whole number of " + RECORD + "-byte records");
+		for (long offset = 0; offset < size; offset += WINDOW)
+		{
+			int length = (int) Math.min(WINDOW, size - offset);
+			ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+			for (int at = 0; at < length; at += RECORD)
+			{
+				c1.place(window.getDouble(at), window.getDouble(at + 8), window.getDouble(at + 16));
+				c2.place(window.getDouble(at + 24), window.getDouble(at + 32), window.getDouble(at + 40));
+				int result = (c1.intersects(c2) ? 1 : 0) | (c2.intersects(c1) ? 2 : 0);
+				if (!outBuffer.hasRemaining())
+					flush();
+				outBuffer.put((byte) result);
+				records++;
+			}
+			report(offset + length, false);
+		}
+	}
+
+	private void parseLine(int end) throws IOException
+	{
+		skipBlanks(end);
+		if (pos == end || in.get(pos) == '#')
+			return;
+		double x1 = nextDouble(end, true);
+		double y1 = nextDouble(end, true);
+		double r1 = nextDouble(end, true);
+		double x2 = nextDouble(end, true);
+		double y2 = nextDouble(end, true);
+		double r2 = nextDouble(end, false);
+		if (pos != end)
+			throw new NumberFormatException("line " + line + ": expected x1,y1,r1,x2,y2,r2");
+		c1.place(x1, y1, r1);
+		c2.place(x2, y2, r2);
+		boolean says1 = c1.intersects(c2);
+		boolean says2 = c2.intersects(c1);
+		if (outBuffer.remaining() < 12)
+			flush();
+		outBuffer.put(says1 ? TRUE : FALSE);
+		outBuffer.put((byte) ',');
+		outBuffer.put(says2 ? TRUE : FALSE);
+		outBuffer.put((byte) '\n');
+		records++;
+	}
+
+	private void skipBlanks(int end)
+	{
+		while (pos < end && blank(in.get(pos)))
+			pos++;
+	}
+
+	private static boolean blank(byte b)
+	{
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	private static boolean delimiter(byte b)
+	{
+		return b == ',' || blank(b);
+	}
+
+	/**
+	 * Parse one field without allocating. Up to 15 significant digits with a decimal exponent of at
+	 * most 22 either way are converted with a single exact multiply or divide, which rounds the same
+	 * as Double.parseDouble(); anything else (long mantissas, huge exponents, NaN, Infinity, hex) is
+	 * handed to Double.parseDouble().
+	 **/
+	private double nextDouble(int end, boolean comma)
+	{
+		skipBlanks(end);
+		int start = pos;
+		boolean negative = false;
+		if (pos < end && (in.get(pos) == '-' || in.get(pos) == '+'))
+			negative = in.get(pos++) == '-';
+		long mantissa = 0;
+		int digits = 0, exponent = 0;
+		boolean any = false, dot = false;
+		for (; pos < end; pos++)
+		{
+			byte b = in.get(pos);
+			if (b >= '0' && b <= '9')
+			{
+				any = true;
+				if (mantissa != 0 || b != '0')
+				{
+					if (digits < 18)
+						mantissa = mantissa * 10 + (b - '0');
+					else if (!dot)
+						exponent++;
+					if (digits < 18 && dot)
+						exponent--;
+					digits++;
+				}
+				else if (dot)
+					exponent--;
+			}
+			else if (b == '.' && !dot)
+				dot = true;
+			else
+				break;
+		}
+		if (any && pos < end && (in.get(pos) == 'e' || in.get(pos) == 'E'))
+		{
+			pos++;
+			boolean negativeExp = false;
+			if (pos < end && (in.get(pos) == '-' || in.get(pos) == '+'))
+				negativeExp = in.get(pos++) == '-';
+			int e = 0;
+			boolean expDigits = false;
+			while (pos < end && in.get(pos) >= '0' && in.get(pos) <= '9')
+			{
+				if (e < 100000)
+					e = e * 10 + (in.get(pos) - '0');
+				pos++;
+				expDigits = true;
+			}
+			if (!expDigits)
+				any = false;
+			exponent += negativeExp ? -e : e;
+		}
+		double value;
+		if (!any || (pos < end && !delimiter(in.get(pos))))
+			value = slowDouble(start, end);
+		else if (mantissa == 0)
+			value = negative ? -0.0 : 0.0;
+		else if (digits <= 15 && exponent >= -22 && exponent <= 22)
+		{
+			value = exponent >= 0 ? mantissa * POW10[exponent] : mantissa / POW10[-exponent];
+			if (negative)
+				value = -value;
+		}
+		else
+			value = slowDouble(start, pos);
+		skipBlanks(end);
+		if (comma)
+		{
+			if (pos == end || in.get(pos) != ',')
+				throw new NumberFormatException("line " + line + ": expected x1,y1,r1,x2,y2,r2");
+			pos++;
+		}
+		return value;
+	}
+
+	/**
+	 * Fall back to the JDK parser for the field starting at start. Leaves pos after the field.
+	 **/
+	private double slowDouble(int start, int end)
+	{
+		int stop = start;
+		while (stop < end && in.get(stop) != ',')
+			stop++;
+		byte[] text = new byte[stop - start];
+		for (int i = 0; i < text.length; i++)
+			text[i] = in.get(start + i);
+		pos = stop;
+		String field = new String(text, StandardCharsets.US_ASCII).trim();
+		try
+		{
+			return Double.parseDouble(field);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new NumberFormatException("line " + line + ": bad number \"" + field + "\"");
+		}
+	}
+
+	/**
+	 * Parse text as one csv field, the same way the csv reader does; lets the parser be tested
+	 * against Double.parseDouble().
+	 **/
+	static double parseField(String text)
+	{
+		CircleBatch batch = new CircleBatch(null);
+		batch.in = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+		return batch.nextDouble(text.length(), false);
+	}
+
+	private void flush() throws IOException
+	{
+		outBuffer.flip();
+		while (outBuffer.hasRemaining())
+			out.write(outBuffer);
+		outBuffer.clear();
+	}
+
+	private void report(long bytesRead, boolean done)
+	{
+		long now = System.nanoTime();
+		if (!done && now - lastReport < 1000000000L)
+			return;
+		lastReport = now;
+		double seconds = Math.max(now - started, 1) / 1e9;
+		System.err.printf("%s%,d pairs, %,.1f MB read, %,.0f pairs/s, %,.1f MB/s%n",
+				done ? "Done: " : "", records, bytesRead / 1e6, records / seconds, bytesRead / 1e6 / seconds);
+	}
+
+}
@@ -0,0 +1,210 @@
+package edu.nmsu.cs.circles;
+
+/***
+ * JUnit testing class for CircleBatch: checks the csv number parser against Double.parseDouble(),
+ * including the edges of its fast path, and runs small csv and bin files through run().
+ ***/
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.*;
+
+public class CircleBatchTest
+{
+	// Data you need for each test case
+	private Path dir;
+
+	//
+	// Stuff you want to do before each test case
+	//
+	@Before
+	public void setup() throws IOException
+	{
+		dir = Files.createTempDirectory("circlebatch");
+	}
+
+	//
+	// Stuff you want to do after each test case
+	//
+	@After
+	public void teardown() throws IOException
+	{
+		for (Path p : Files.newDirectoryStream(dir))
+			Files.delete(p);
+		Files.delete(dir);
+	}
+
+	//
+	// Test 15 significant digits (fast path) and 16 or more (handed to the JDK)
+	//
+	@Test
+	public void digitCounts()
+	{
+		check("123456789012345");
+		check("0.123456789012345");
+		check("1234567890123456");
+		check("12345678901234567890");
+		check("9007199254740993");
+		check("0.1000000000000000055511151231257827");
+		check("3.141592653589793238");
+	}
+
+	//
+	// Test decimal exponents either side of the exactly representable powers of ten
+	//
+	@Test
+	public void exponentEdges()
+	{
+		check("1e22");
+		check("1e23");
+		check("1e-22");
+		check("1e-23");
+		check("123456789012345e22");
+		check("123456789012345e-22");
+		check("1.5E+22");
+		check("1.5e-23");
+		check("4.9e-324");
+		check("1.7976931348623157e308");
+		check("1e400");
+	}
+
+	//
+	// Test zeros, signs and leading zeros
+	//
+	@Test
+	public void zerosAndSigns()
+	{
+		check("0");
+		check("-0");
+		check("-0.0");
+		check("+0");
+		check("000000000000000000000000012.5");
+		check("0.000000000000000000000000125");
+		check("-.5");
+		check("5.");
+		check("+7");
+	}
+
+	//
+	// Test what only the JDK parser handles
+	//
+	@Test
+	public void fallbacks()
+	{
+		check("NaN");
+		check("Infinity");
+		check("-Infinity");
+		check("0x1.8p1");
+		check("1d");
+		check("  2.5  ");
+	}
+
+	//
+	// Test malformed fields are rejected
+	//
+	@Test(expected = NumberFormatException.class)
+	public void badNumber()
+	{
+		CircleBatch.parseField("1.2.3");
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void missingExponent()
+	{
+		CircleBatch.parseField("1e");
+	}
+
+	//
+	// Test random numbers in the formats people write them
+	//
+	@Test
+	public void randomNumbers()
+	{
+		Random random = new Random(371);
+		for (int i = 0; i < 20000; i++)
+		{
+			double d = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+			check(Double.toString(d));
+			check(String.format("%.6f", d));
+			check(String.format("%.3e", d));
+		}
+	}
+
+	//
+	// Test a small csv file through run(), with a blank line and a comment
+	//
+	@Test
+	public void csvRoundTrip() throws IOException
+	{
+		Path input = dir.resolve("in.csv");
+		Path output = dir.resolve("out.csv");
+		double[][] pairs = randomPairs();
+		StringBuilder text = new StringBuilder("# x1,y1,r1,x2,y2,r2\n\n");
+		StringBuilder expected = new StringBuilder();
+		for (double[] p : pairs)
+		{
+			text.append(p[0]).append(',').append(p[1]).append(", ").append(p[2]).append(',')
+					.append(p[3]).append(',').append(p[4]).append(',').append(p[5]).append("\r\n");
+			expected.append(says(p, true)).append(',').append(says(p, false)).append('\n');
+		}
+		Files.write(input, text.toString().getBytes(StandardCharsets.US_ASCII));
+		Assert.assertEquals(pairs.length, CircleBatch.run("csv", input.toString(), output.toString()));
+		Assert.assertEquals(expected.toString(),
+				new String(Files.readAllBytes(output), StandardCharsets.US_ASCII));
+	}
+
+	//
+	// Test a small bin file through run()
+	//
+	@Test
+	public void binRoundTrip() throws IOException
+	{
+		Path input = dir.resolve("in.bin");
+		Path output = dir.resolve("out.bin");
+		double[][] pairs = randomPairs();
+		byte[] expected = new byte[pairs.length];
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(input)))
+		{
+			for (int i = 0; i < pairs.length; i++)
+			{
+				for (double d : pairs[i])
+					out.writeDouble(d);
+				expected[i] = (byte) ((says(pairs[i], true) ? 1 : 0) | (says(pairs[i], false) ? 2 : 0));
+			}
+		}
+		Assert.assertEquals(pairs.length, CircleBatch.run("bin", input.toString(), output.toString()));
+		Assert.assertArrayEquals(expected, Files.readAllBytes(output));
+	}
+
+	private static void check(String text)
+	{
+		Assert.assertEquals(text, Double.doubleToRawLongBits(Double.parseDouble(text)),
+				Double.doubleToRawLongBits(CircleBatch.parseField(text)));
+	}
+
+	private static double[][] randomPairs()
+	{
+		Random random = new Random(42);
+		double[][] pairs = new double[1000][6];
+		for (double[] p : pairs)
+			for (int k = 0; k < 6; k++)
+				p[k] = random.nextDouble() * 10;
+		return pairs;
+	}
+
+	/**
+	 * @return what the Circle1 (first) or Circle2 of a pair says about the other
+	 **/
+	private static boolean says(double[] p, boolean first)
+	{
+		Circle1 a = new Circle1(p[0], p[1], p[2]);
+		Circle2 b = new Circle2(p[3], p[4], p[5]);
+		return first ? a.intersects(b) : b.intersects(a);
+	}
+
+}
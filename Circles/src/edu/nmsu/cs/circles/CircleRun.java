@@ -7,15 +7,21 @@ public class CircleRun
 {
 
 	/**
-	 * Accept command line args for two circles and then run their intersect() methods.
+	 * Accept command line args for two circles and then run their intersect() methods. With
+	 * "-batch csv|bin infile outfile" instead, run every pair in a file (see CircleBatch).
 	 **/
 	public static void main(String args[])
 	{
 		Circle1 c1;
 		Circle2 c2;
+		if (args.length > 0 && args[0].equals("-batch"))
+		{
+			batch(args);
+			return;
+		}
 		if (args.length != 6)
 		{
-			System.out.println("Error: args must be x1 y1 r1 x2 y2 r2");
+			System.out.println("Error: args must be x1 y1 r1 x2 y2 r2 or -batch csv|bin infile outfile");
 			return;
 		}
 		try
@@ -40,4 +46,25 @@ public class CircleRun
 		System.out.println("Circle 2 says: " + c2.intersects(c1));
 	}
 
+	/**
+	 * Batch mode: args are -batch format infile outfile
+	 **/
+	private static void batch(String args[])
+	{
+		if (args.length != 4)
+		{
+			System.out.println("Error: args must be -batch csv|bin infile outfile");
+			return;
+		}
+		try
+		{
+			CircleBatch.run(args[1], args[2], args[3]);
+		}
+		catch (Exception e)
+		{
+			System.out.println("Batch failed! " + e);
+			e.printStackTrace();
+		}
+	}
+
 }
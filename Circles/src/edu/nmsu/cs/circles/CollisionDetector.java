@@ -0,0 +1,369 @@
+package edu.nmsu.cs.circles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * All-pairs intersection testing for a set of circles. The circles are sorted by the left edge of
+ * their x extent and swept left to right (sort-and-sweep), so only pairs whose x extents overlap
+ * get the full intersection test. The sweep is cut into chunks that run as fork-join tasks; each
+ * task writes pairs into its own buffer and the buffers are merged at the end, so no locking is
+ * needed while testing. Sorting and gathering into sweep order are fork-join tasks too, and all of
+ * it runs on the detector's pool.
+ *
+ * A pair is reported if either circle intersects the other under the chosen IntersectionRule (see
+ * IntersectionRule.test(Circle, Circle)). Pairs are packed into a long as (i << 32 | j) with i < j
+ * being indices into the input array, and the result is always sorted, so the output is the same
+ * no matter how many threads ran.
+ **/
+public class CollisionDetector
+{
+	/** fewer sweep positions than this are not worth splitting across threads **/
+	static final int	MIN_CHUNK	= 2048;
+
+	private final IntersectionRule	rule;
+
+	private final ForkJoinPool			pool;
+
+	/**
+	 * Create a detector that runs on the common fork-join pool
+	 *
+	 * @param rule
+	 *          is the intersection rule (Circle1-style or Circle2-style)
+	 **/
+	public CollisionDetector(IntersectionRule rule)
+	{
+		this(rule, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Create a detector that runs on the given pool
+	 *
+	 * @param rule
+	 *          is the intersection rule (Circle1-style or Circle2-style)
+	 * @param pool
+	 *          is the pool to run sweep tasks on
+	 **/
+	public CollisionDetector(IntersectionRule rule, ForkJoinPool pool)
+	{
+		this.rule = rule;
+		this.pool = pool;
+	}
+
+	/**
+	 * Find every intersecting pair of circles.
+	 *
+	 * @param circles
+	 *          are the circles to test
+	 * @return the intersecting pairs, packed as (i << 32 | j) with i < j, in ascending order
+	 **/
+	public long[] findIntersections(final Circle[] circles)
+	{
+		if (circles.length < 2 * MIN_CHUNK)
+			return sweep(circles, 1);
+		final int chunks = Math.min(circles.length / MIN_CHUNK, pool.getParallelism() * 8);
+		// run everything, sorts included, as a task on the pool so forks stay on it
+		return pool.submit(() -> sweep(circles, chunks)).join();
+	}
+
+	/**
+	 * Sort, gather into sweep order, sweep in chunks and merge. With more than one chunk this runs
+	 * inside the pool; with one it runs on the caller's thread and nothing forks, since a fork from
+	 * outside any pool would land on the common pool.
+	 **/
+	private long[] sweep(Circle[] circles, int chunks)
+	{
+		int n = circles.length;
+		double[] left = new double[n];
+		int[] order = new int[n];
+		// copy into sweep order so the inner loop walks memory sequentially
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		double[] rs = new double[n];
+		double[] sortedLeft = new double[n];
+		if (chunks == 1)
+		{
+			sortRange(circles, left, order, new int[n], 0, n);
+			gatherRange(circles, left, order, xs, ys, rs, sortedLeft, 0, n);
+		}
+		else
+		{
+			new SortTask(circles, left, order, new int[n], 0, n).invoke();
+			new GatherTask(circles, left, order, xs, ys, rs, sortedLeft, 0, n).invoke();
+		}
+
+		List<SweepTask> tasks = new ArrayList<SweepTask>(chunks);
+		for (int k = 0; k < chunks; k++)
+		{
+			int lo = (int) ((long) n * k / chunks);
+			int hi = (int) ((long) n * (k + 1) / chunks);
+			tasks.add(new SweepTask(xs, ys, rs, sortedLeft, order, lo, hi));
+		}
+		if (chunks == 1)
+			tasks.get(0).compute();
+		else
+			ForkJoinTask.invokeAll(tasks);
+
+		int total = 0;
+		for (SweepTask t : tasks)
+			total += t.count;
+		long[] pairs = new long[total];
+		int at = 0;
+		for (SweepTask t : tasks)
+		{
+			System.arraycopy(t.pairs, 0, pairs, at, t.count);
+			at += t.count;
+		}
+		if (chunks == 1)
+			Arrays.sort(pairs);
+		else
+			Arrays.parallelSort(pairs);
+		return pairs;
+	}
+
+	/**
+	 * Get the lower input index of a packed pair
+	 *
+	 * @param pair
+	 *          is a pair returned by findIntersections()
+	 * @return the index i of the pair (i, j)
+	 **/
+	public static int first(long pair)
+	{
+		return (int) (pair >>> 32);
+	}
+
+	/**
+	 * Get the higher input index of a packed pair
+	 *
+	 * @param pair
+	 *          is a pair returned by findIntersections()
+	 * @return the index j of the pair (i, j)
+	 **/
+	public static int second(long pair)
+	{
+		return (int) pair;
+	}
+
+	static long pack(int i, int j)
+	{
+		if (i > j)
+		{
+			int t = i;
+			i = j;
+			j = t;
+		}
+		return ((long) i << 32) | (j & 0xffffffffL);
+	}
+
+	/**
+	 * Stable merge sort of an index array by a key array, without boxing the indices.
+	 **/
+	static void sortByKey(int[] order, double[] key)
+	{
+		sortByKey(order, key, new int[order.length], 0, order.length);
+	}
+
+	/**
+	 * Stable bottom-up merge sort of order[lo, hi) by key, using scratch[lo, hi) as the other buffer.
+	 **/
+	static void sortByKey(int[] order, double[] key, int[] scratch, int lo, int hi)
+	{
+		int[] src = order;
+		int[] dst = scratch;
+		for (int width = 1; width < hi - lo; width *= 2)
+		{
+			for (int start = lo; start < hi; start += 2 * width)
+				merge(src, dst, key, start, Math.min(start + width, hi), Math.min(start + 2 * width, hi));
+			int[] t = src;
+			src = dst;
+			dst = t;
+		}
+		if (src != order)
+			System.arraycopy(src, lo, order, lo, hi - lo);
+	}
+
+	/**
+	 * Merge the sorted runs src[lo, mid) and src[mid, hi) into dst[lo, hi), ties from the left run
+	 * first.
+	 **/
+	private static void merge(int[] src, int[] dst, double[] key, int lo, int mid, int hi)
+	{
+		int a = lo, b = mid, k = lo;
+		while (a < mid && b < hi)
+			dst[k++] = key[src[b]] < key[src[a]] ? src[b++] : src[a++];
+		while (a < mid)
+			dst[k++] = src[a++];
+		while (b < hi)
+			dst[k++] = src[b++];
+	}
+
+	/**
+	 * Fill in the left edges and the identity order for [lo, hi), then sort that range by left edge.
+	 **/
+	private static void sortRange(Circle[] circles, double[] left, int[] order, int[] scratch,
+			int lo, int hi)
+	{
+		for (int i = lo; i < hi; i++)
+		{
+			Circle c = circles[i];
+			left[i] = c.center.x - IntersectionRule.reach(c.radius);
+			order[i] = i;
+		}
+		sortByKey(order, left, scratch, lo, hi);
+	}
+
+	/**
+	 * Copy positions [lo, hi) of the sorted order into the sweep arrays.
+	 **/
+	private static void gatherRange(Circle[] circles, double[] left, int[] order, double[] xs,
+			double[] ys, double[] rs, double[] sortedLeft, int lo, int hi)
+	{
+		for (int p = lo; p < hi; p++)
+		{
+			Circle c = circles[order[p]];
+			xs[p] = c.center.x;
+			ys[p] = c.center.y;
+			rs[p] = c.radius;
+			sortedLeft[p] = left[order[p]];
+		}
+	}
+
+	/**
+	 * Sorts [lo, hi) by left edge: small ranges directly, larger ones by sorting the halves as
+	 * parallel tasks and merging.
+	 **/
+	private static class SortTask extends RecursiveAction
+	{
+		private static final long	serialVersionUID	= 1L;
+
+		private final Circle[]		circles;
+
+		private final double[]		left;
+
+		private final int[]				order, scratch;
+
+		private final int					lo, hi;
+
+		SortTask(Circle[] circles, double[] left, int[] order, int[] scratch, int lo, int hi)
+		{
+			this.circles = circles;
+			this.left = left;
+			this.order = order;
+			this.scratch = scratch;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute()
+		{
+			if (hi - lo <= MIN_CHUNK)
+			{
+				sortRange(circles, left, order, scratch, lo, hi);
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new SortTask(circles, left, order, scratch, lo, mid),
+					new SortTask(circles, left, order, scratch, mid, hi));
+			merge(order, scratch, left, lo, mid, hi);
+			System.arraycopy(scratch, lo, order, lo, hi - lo);
+		}
+	}
+
+	/**
+	 * Copies positions [lo, hi) of the sorted order into the sweep arrays, splitting large ranges
+	 * into parallel tasks.
+	 **/
+	private static class GatherTask extends RecursiveAction
+	{
+		private static final long	serialVersionUID	= 1L;
+
+		private final Circle[]		circles;
+
+		private final double[]		left, xs, ys, rs, sortedLeft;
+
+		private final int[]				order;
+
+		private final int					lo, hi;
+
+		GatherTask(Circle[] circles, double[] left, int[] order, double[] xs, double[] ys,
+				double[] rs, double[] sortedLeft, int lo, int hi)
+		{
+			this.circles = circles;
+			this.left = left;
+			this.order = order;
+			this.xs = xs;
+			this.ys = ys;
+			this.rs = rs;
+			this.sortedLeft = sortedLeft;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute()
+		{
+			if (hi - lo > MIN_CHUNK)
+			{
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new GatherTask(circles, left, order, xs, ys, rs, sortedLeft, lo, mid),
+						new GatherTask(circles, left, order, xs, ys, rs, sortedLeft, mid, hi));
+				return;
+			}
+			gatherRange(circles, left, order, xs, ys, rs, sortedLeft, lo, hi);
+		}
+	}
+
+	/**
+	 * One chunk of the sweep: tests every sweep position in [lo, hi) against the positions after it
+	 * whose x extent starts before this circle's extent ends.
+	 **/
+	private class SweepTask extends RecursiveAction
+	{
+		private static final long	serialVersionUID	= 1L;
+
+		private final double[]	xs, ys, rs, left;
+
+		private final int[]			ids;
+
+		private final int				lo, hi;
+
+		long[]									pairs	= new long[64];
+
+		int											count;
+
+		SweepTask(double[] xs, double[] ys, double[] rs, double[] left, int[] ids, int lo, int hi)
+		{
+			this.xs = xs;
+			this.ys = ys;
+			this.rs = rs;
+			this.left = left;
+			this.ids = ids;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute()
+		{
+			int n = xs.length;
+			for (int p = lo; p < hi; p++)
+			{
+				double x = xs[p], y = ys[p], r = rs[p];
+				double right = x + IntersectionRule.reach(r);
+				for (int q = p + 1; q < n && left[q] < right; q++)
+				{
+					if (rule.test(x, y, r, xs[q], ys[q]) || rule.test(xs[q], ys[q], rs[q], x, y))
+					{
+						if (count == pairs.length)
+							pairs = Arrays.copyOf(pairs, count * 2);
+						pairs[count++] = pack(ids[p], ids[q]);
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+package edu.nmsu.cs.circles;
+
+/***
+ * JUnit testing class for CollisionDetector: checks the sweep against a brute-force all-pairs loop
+ * for both intersection rules.
+ ***/
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.*;
+
+public class CollisionDetectorTest
+{
+	// Data you need for each test case
+	private Circle[] circles;
+
+	//
+	// Stuff you want to do before each test case
+	//
+	@Before
+	public void setup()
+	{
+		Random random = new Random(371);
+		circles = new Circle[10000];
+		for (int i = 0; i < circles.length; i++)
+		{
+			double x = random.nextDouble() * 100;
+			double y = random.nextDouble() * 100;
+			double r = random.nextDouble();
+			if (i % 2 == 0)
+				circles[i] = new Circle1(x, y, r);
+			else
+				circles[i] = new Circle2(x, y, r);
+		}
+	}
+
+	//
+	// Test the sweep finds the same pairs as checking every pair
+	//
+	@Test
+	public void matchesBruteForceCircle1()
+	{
+		Assert.assertArrayEquals(bruteForce(IntersectionRule.CIRCLE1),
+				new CollisionDetector(IntersectionRule.CIRCLE1).findIntersections(circles));
+	}
+
+	@Test
+	public void matchesBruteForceCircle2()
+	{
+		Assert.assertArrayEquals(bruteForce(IntersectionRule.CIRCLE2),
+				new CollisionDetector(IntersectionRule.CIRCLE2).findIntersections(circles));
+	}
+
+	//
+	// Test the rules agree with the intersects() methods they copy
+	//
+	@Test
+	public void rulesMatchIntersects()
+	{
+		Circle1 a = new Circle1(1, 2, 3);
+		Circle2 b = new Circle2(2, 3, 1);
+		Assert.assertEquals(a.intersects(b), IntersectionRule.CIRCLE1.test(a.center.x, a.center.y,
+				a.radius, b.center.x, b.center.y));
+		Assert.assertEquals(b.intersects(a), IntersectionRule.CIRCLE2.test(b.center.x, b.center.y,
+				b.radius, a.center.x, a.center.y));
+	}
+
+	//
+	// Test a single thread and many threads give the same answer
+	//
+	@Test
+	public void deterministicAcrossPools()
+	{
+		long[] one = new CollisionDetector(IntersectionRule.CIRCLE2,
+				new ForkJoinPool(1)).findIntersections(circles);
+		long[] many = new CollisionDetector(IntersectionRule.CIRCLE2,
+				new ForkJoinPool(8)).findIntersections(circles);
+		Assert.assertArrayEquals(one, many);
+	}
+
+	//
+	// Test an input too small to split runs on the caller's thread without forking to the common pool
+	//
+	@Test
+	public void singleChunkStaysOffCommonPool()
+	{
+		circles = Arrays.copyOf(circles, 2 * CollisionDetector.MIN_CHUNK - 1);
+		long steals = ForkJoinPool.commonPool().getStealCount();
+		long[] pairs = new CollisionDetector(IntersectionRule.CIRCLE1,
+				new ForkJoinPool(1)).findIntersections(circles);
+		Assert.assertEquals(steals, ForkJoinPool.commonPool().getStealCount());
+		Assert.assertArrayEquals(bruteForce(IntersectionRule.CIRCLE1), pairs);
+	}
+
+	private long[] bruteForce(IntersectionRule rule)
+	{
+		long[] pairs = new long[16];
+		int count = 0;
+		for (int i = 0; i < circles.length; i++)
+			for (int j = i + 1; j < circles.length; j++)
+				if (rule.test(circles[i], circles[j]))
+				{
+					if (count == pairs.length)
+						pairs = Arrays.copyOf(pairs, count * 2);
+					pairs[count++] = CollisionDetector.pack(i, j);
+				}
+		return Arrays.copyOf(pairs, count);
+	}
+
+}
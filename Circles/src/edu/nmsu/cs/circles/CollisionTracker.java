@@ -0,0 +1,492 @@
+package edu.nmsu.cs.circles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Incremental intersection tracking for circles that move a little at a time. Instead of testing
+ * everything again after each round of moveBy() and scale() calls, the tracker keeps the x extents
+ * and the y extents of all circles in two sorted endpoint lists, and the set of candidate pairs
+ * whose extents overlap on both axes. Each update() re-sorts both lists with insertion sort, which
+ * is nearly linear when circles have only moved a bit; every swap of a left edge past a right edge
+ * may make a pair a candidate, and every swap back drops one. Only candidates involving a circle
+ * that moved or changed size get the full intersection test again, and update() reports just the
+ * pairs that started or stopped intersecting since the last call, so a tick costs about the number
+ * of circles plus the number of changes.
+ *
+ * Circles added since the last update are loaded in bulk: their endpoints are sorted once and
+ * merged into the lists, and one sweep along x finds their candidates.
+ *
+ * Pairs are judged the same way as CollisionDetector: a pair intersects if either circle intersects
+ * the other under the chosen IntersectionRule.
+ **/
+public class CollisionTracker
+{
+	private final IntersectionRule	rule;
+
+	private final List<Circle>			circles				= new ArrayList<Circle>();
+
+	/** circles [0, loaded) are in the endpoint lists; the rest were added since the last update **/
+	private int											loaded;
+
+	/** each circle's center and radius as of the last update **/
+	private double[]								x							= new double[16], y = new double[16];
+
+	private double[]								r							= new double[16];
+
+	/** each circle's extent along x (axis 0) and y (axis 1) as of the last update **/
+	private double[][]							low						= new double[2][16], high = new double[2][16];
+
+	/** circles whose center or radius changed in the current update **/
+	private boolean[]								moved					= new boolean[16];
+
+	/** per axis, endpoint positions kept sorted between updates **/
+	private double[][]							position			= new double[2][0];
+
+	/** per axis, endpoint owners: circle index << 1, plus 1 for a right edge **/
+	private int[][]									endpoint			= new int[2][0];
+
+	/** pairs whose extents overlap on both axes, packed as in CollisionDetector **/
+	private final PairSet						candidates		= new PairSet(0x9E3779B97F4A7C15L);
+
+	/**
+	 * pairs that intersected as of the last update; update() fills it while walking the candidate
+	 * table in slot order, so it hashes differently or the pairs would arrive bunched together
+	 **/
+	private final PairSet						intersecting	= new PairSet(0xC2B2AE3D27D4EB4FL);
+
+	/** pairs that started or stopped intersecting in the current update **/
+	private long[]									changed				= new long[16];
+
+	private int											changes;
+
+	/**
+	 * A pair of circles that started or stopped intersecting during an update.
+	 **/
+	public static class Event
+	{
+		/** the circle added to the tracker first **/
+		public final Circle		first;
+
+		/** the circle added to the tracker second **/
+		public final Circle		second;
+
+		/** True if the pair started intersecting, False if it stopped **/
+		public final boolean	entered;
+
+		Event(Circle first, Circle second, boolean entered)
+		{
+			this.first = first;
+			this.second = second;
+			this.entered = entered;
+		}
+	}
+
+	/**
+	 * Create an empty tracker
+	 *
+	 * @param rule
+	 *          is the intersection rule (Circle1-style or Circle2-style)
+	 **/
+	public CollisionTracker(IntersectionRule rule)
+	{
+		this.rule = rule;
+	}
+
+	/**
+	 * Start tracking a circle. It is picked up by the next update(), which reports enter events for
+	 * everything it already intersects.
+	 *
+	 * @param circle
+	 *          is the circle to track
+	 **/
+	public void add(Circle circle)
+	{
+		circles.add(circle);
+		int n = circles.size();
+		if (n > moved.length)
+		{
+			int capacity = moved.length * 2;
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			r = Arrays.copyOf(r, capacity);
+			for (int axis = 0; axis < 2; axis++)
+			{
+				low[axis] = Arrays.copyOf(low[axis], capacity);
+				high[axis] = Arrays.copyOf(high[axis], capacity);
+			}
+			moved = Arrays.copyOf(moved, capacity);
+		}
+	}
+
+	/**
+	 * @return the number of circles being tracked
+	 **/
+	public int size()
+	{
+		return circles.size();
+	}
+
+	/**
+	 * @return the number of pairs that intersected as of the last update
+	 **/
+	public int intersectingPairs()
+	{
+		return intersecting.size;
+	}
+
+	/**
+	 * Read the current position and radius of every tracked circle and find which pairs started or
+	 * stopped intersecting since the last update.
+	 *
+	 * @return the enter and exit events, ordered by the pair's tracker indices
+	 **/
+	public List<Event> update()
+	{
+		int n = circles.size();
+		for (int id = 0; id < n; id++)
+		{
+			Circle c = circles.get(id);
+			double cx = c.center.x, cy = c.center.y, cr = c.radius;
+			moved[id] = id >= loaded || cx != x[id] || cy != y[id] || cr != r[id];
+			if (moved[id])
+			{
+				x[id] = cx;
+				y[id] = cy;
+				r[id] = cr;
+				double reach = IntersectionRule.reach(cr);
+				low[0][id] = cx - reach;
+				high[0][id] = cx + reach;
+				low[1][id] = cy - reach;
+				high[1][id] = cy + reach;
+			}
+		}
+
+		changes = 0;
+		sortAxis(0);
+		sortAxis(1);
+		if (n > loaded)
+			load(n);
+
+		long[] table = candidates.table;
+		for (int s = 0; s < table.length; s++)
+		{
+			long pair = table[s];
+			if (pair == 0)
+				continue;
+			int a = CollisionDetector.first(pair), b = CollisionDetector.second(pair);
+			if (!moved[a] && !moved[b])
+				continue;
+			boolean now = rule.test(x[a], y[a], r[a], x[b], y[b])
+					|| rule.test(x[b], y[b], r[b], x[a], y[a]);
+			if (now ? intersecting.add(pair) : intersecting.remove(pair))
+				changed(pair);
+		}
+
+		Arrays.sort(changed, 0, changes);
+		List<Event> events = new ArrayList<Event>(changes);
+		for (int i = 0; i < changes; i++)
+		{
+			long pair = changed[i];
+			events.add(new Event(circles.get(CollisionDetector.first(pair)),
+					circles.get(CollisionDetector.second(pair)), intersecting.contains(pair)));
+		}
+		return events;
+	}
+
+	/**
+	 * Bring the loaded circles' endpoints on one axis up to date and insertion sort them. Each
+	 * inverted pair of endpoints is swapped exactly once, so a left edge passing a right edge is
+	 * where a pair may have started to overlap (checked against the new extents on both axes), and
+	 * a right edge passing a left edge is where a pair stopped overlapping on this axis.
+	 **/
+	private void sortAxis(int axis)
+	{
+		double[] position = this.position[axis];
+		int[] endpoint = this.endpoint[axis];
+		int count = 2 * loaded;
+		for (int k = 0; k < count; k++)
+		{
+			int e = endpoint[k];
+			position[k] = (e & 1) == 0 ? low[axis][e >> 1] : high[axis][e >> 1];
+		}
+
+		for (int k = 1; k < count; k++)
+		{
+			double p = position[k];
+			int e = endpoint[k];
+			int j = k;
+			while (j > 0 && before(p, e, position[j - 1], endpoint[j - 1]))
+			{
+				int passed = endpoint[j - 1];
+				if ((e & 1) == 0 && (passed & 1) == 1)
+				{
+					// a left edge moved past a right edge: the extents may overlap now
+					if (overlaps(e >> 1, passed >> 1))
+						candidates.add(CollisionDetector.pack(e >> 1, passed >> 1));
+				}
+				else if ((e & 1) == 1 && (passed & 1) == 0)
+				{
+					// a right edge moved past a left edge: the extents no longer overlap
+					long pair = CollisionDetector.pack(e >> 1, passed >> 1);
+					if (candidates.remove(pair) && intersecting.remove(pair))
+						changed(pair);
+				}
+				position[j] = position[j - 1];
+				endpoint[j] = passed;
+				j--;
+			}
+			position[j] = p;
+			endpoint[j] = e;
+		}
+	}
+
+	/**
+	 * Merge the endpoints of circles [loaded, n) into both lists, then sweep along x to make every
+	 * pair involving one of them a candidate if their extents overlap on both axes.
+	 **/
+	private void load(int n)
+	{
+		int from = loaded, adding = n - from;
+		for (int axis = 0; axis < 2; axis++)
+		{
+			// left edges first, so the stable sort keeps a left edge before a right edge at a tie
+			double[] key = new double[2 * adding];
+			int[] order = new int[2 * adding];
+			for (int i = 0; i < adding; i++)
+			{
+				key[i] = low[axis][from + i];
+				key[adding + i] = high[axis][from + i];
+			}
+			for (int i = 0; i < order.length; i++)
+				order[i] = i;
+			CollisionDetector.sortByKey(order, key);
+
+			double[] oldPosition = position[axis];
+			int[] oldEndpoint = endpoint[axis];
+			double[] newPosition = new double[2 * n];
+			int[] newEndpoint = new int[2 * n];
+			int a = 0, b = 0, k = 0;
+			while (a < 2 * from || b < order.length)
+			{
+				int o = b < order.length ? order[b] : 0;
+				int e = o < adding ? (from + o) << 1 : ((from + o - adding) << 1) | 1;
+				if (b < order.length
+						&& (a == 2 * from || before(key[o], e, oldPosition[a], oldEndpoint[a])))
+				{
+					newPosition[k] = key[o];
+					newEndpoint[k++] = e;
+					b++;
+				}
+				else
+				{
+					newPosition[k] = oldPosition[a];
+					newEndpoint[k++] = oldEndpoint[a++];
+				}
+			}
+			position[axis] = newPosition;
+			endpoint[axis] = newEndpoint;
+		}
+		loaded = n;
+
+		// circles whose x extent is open, split into those loaded before and those just added;
+		// being open together means the x extents overlap, so only y is left to check
+		Active olds = new Active(from), news = new Active(adding);
+		int[] slot = new int[n];
+		double[] lowY = low[1], highY = high[1];
+		int[] endpoint = this.endpoint[0];
+		for (int k = 0; k < 2 * n; k++)
+		{
+			int e = endpoint[k], id = e >> 1;
+			boolean added = id >= from;
+			if ((e & 1) == 1)
+				(added ? news : olds).remove(id, slot);
+			else if (added)
+			{
+				news.pair(id, lowY[id], highY[id], candidates);
+				olds.pair(id, lowY[id], highY[id], candidates);
+				news.add(id, lowY[id], highY[id], slot);
+			}
+			else
+			{
+				news.pair(id, lowY[id], highY[id], candidates);
+				olds.add(id, lowY[id], highY[id], slot);
+			}
+		}
+	}
+
+	/**
+	 * @return True if the extents of circles a and b overlap (or touch) on both axes
+	 **/
+	private boolean overlaps(int a, int b)
+	{
+		return low[0][a] <= high[0][b] && low[0][b] <= high[0][a] && low[1][a] <= high[1][b]
+				&& low[1][b] <= high[1][a];
+	}
+
+	private void changed(long pair)
+	{
+		if (changes == changed.length)
+			changed = Arrays.copyOf(changed, changes * 2);
+		changed[changes++] = pair;
+	}
+
+	/**
+	 * Endpoint order: by position, and a left edge sorts before a right edge at the same position so
+	 * that touching extents count as overlapping.
+	 **/
+	private static boolean before(double p, int e, double q, int f)
+	{
+		return p < q || (p == q && (e & 1) == 0 && (f & 1) == 1);
+	}
+
+	/**
+	 * The circles whose x extent is open at the current point of a sweep, with their y extents kept
+	 * alongside so scanning them reads memory in order.
+	 **/
+	private static class Active
+	{
+		final int[]			id;
+
+		final double[]	low, high;
+
+		int							size;
+
+		Active(int capacity)
+		{
+			id = new int[capacity];
+			low = new double[capacity];
+			high = new double[capacity];
+		}
+
+		void add(int circle, double lowY, double highY, int[] slot)
+		{
+			slot[circle] = size;
+			id[size] = circle;
+			low[size] = lowY;
+			high[size] = highY;
+			size++;
+		}
+
+		void remove(int circle, int[] slot)
+		{
+			int s = slot[circle];
+			size--;
+			id[s] = id[size];
+			low[s] = low[size];
+			high[s] = high[size];
+			slot[id[s]] = s;
+		}
+
+		/**
+		 * Make a circle a candidate with every open circle whose y extent overlaps its own
+		 **/
+		void pair(int circle, double lowY, double highY, PairSet candidates)
+		{
+			for (int i = 0; i < size; i++)
+				if (lowY <= high[i] && low[i] <= highY)
+					candidates.add(CollisionDetector.pack(circle, id[i]));
+		}
+	}
+
+	/**
+	 * A set of packed pairs in an open-addressing table with linear probing, hashed by multiplying
+	 * with an odd constant and keeping the top bits. A pair always has i < j, so 0 is never a pair
+	 * and marks an empty slot.
+	 **/
+	private static class PairSet
+	{
+		long[]							table	= new long[64];
+
+		int									size;
+
+		private final long	multiplier;
+
+		private int					shift	= 64 - 6;
+
+		PairSet(long multiplier)
+		{
+			this.multiplier = multiplier;
+		}
+
+		boolean contains(long pair)
+		{
+			int mask = table.length - 1;
+			for (int s = home(pair);; s = (s + 1) & mask)
+			{
+				if (table[s] == pair)
+					return true;
+				if (table[s] == 0)
+					return false;
+			}
+		}
+
+		/**
+		 * @return True if the pair was not already in the set
+		 **/
+		boolean add(long pair)
+		{
+			if ((size + 1) * 4L > table.length * 3L)
+				grow();
+			int mask = table.length - 1;
+			for (int s = home(pair);; s = (s + 1) & mask)
+			{
+				if (table[s] == pair)
+					return false;
+				if (table[s] == 0)
+				{
+					table[s] = pair;
+					size++;
+					return true;
+				}
+			}
+		}
+
+		/**
+		 * Remove a pair, shifting later entries of its probe run back so no lookup stops early.
+		 *
+		 * @return True if the pair was in the set
+		 **/
+		boolean remove(long pair)
+		{
+			int mask = table.length - 1;
+			int hole = home(pair);
+			while (table[hole] != pair)
+			{
+				if (table[hole] == 0)
+					return false;
+				hole = (hole + 1) & mask;
+			}
+			size--;
+			for (int s = (hole + 1) & mask; table[s] != 0; s = (s + 1) & mask)
+			{
+				// an entry can fill the hole only if the hole is between its home slot and where it is
+				if (((s - home(table[s])) & mask) >= ((s - hole) & mask))
+				{
+					table[hole] = table[s];
+					hole = s;
+				}
+			}
+			table[hole] = 0;
+			return true;
+		}
+
+		private int home(long pair)
+		{
+			return (int) ((pair * multiplier) >>> shift);
+		}
+
+		private void grow()
+		{
+			long[] old = table;
+			table = new long[old.length * 2];
+			shift--;
+			size = 0;
+			for (long pair : old)
+				if (pair != 0)
+					add(pair);
+		}
+	}
+
+}
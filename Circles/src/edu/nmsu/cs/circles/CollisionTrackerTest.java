@@ -0,0 +1,174 @@
+package edu.nmsu.cs.circles;
+
+/***
+ * JUnit testing class for CollisionTracker: moves, scales and adds circles over several ticks and
+ * checks every update's enter and exit events against CollisionDetector run from scratch.
+ ***/
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.*;
+
+public class CollisionTrackerTest
+{
+	// Data you need for each test case
+	private Random random;
+
+	private Circle[] circles;
+
+	private int count;
+
+	//
+	// Stuff you want to do before each test case
+	//
+	@Before
+	public void setup()
+	{
+		random = new Random(371);
+		circles = new Circle[1000];
+		count = 0;
+	}
+
+	//
+	// Test moving and growing circles, with more added partway through
+	//
+	@Test
+	public void tracksMovesAndAddsCircle1()
+	{
+		runTicks(IntersectionRule.CIRCLE1, 1);
+	}
+
+	@Test
+	public void tracksMovesAndAddsCircle2()
+	{
+		runTicks(IntersectionRule.CIRCLE2, 1);
+	}
+
+	//
+	// Test only a third of the circles moving each tick, so unmoved pairs are left alone
+	//
+	@Test
+	public void tracksPartialMoves()
+	{
+		runTicks(IntersectionRule.CIRCLE2, 3);
+	}
+
+	//
+	// Test a circle shrunk past zero radius stops intersecting, and counts again once it grows back
+	//
+	@Test
+	public void negativeRadius()
+	{
+		CollisionTracker tracker = new CollisionTracker(IntersectionRule.CIRCLE2);
+		Circle a = new Circle2(0, 0, 2);
+		Circle b = new Circle2(1, 1, 0.5);
+		tracker.add(a);
+		tracker.add(b);
+		List<CollisionTracker.Event> events = tracker.update();
+		Assert.assertEquals(1, events.size());
+		Assert.assertTrue(events.get(0).entered);
+		a.scale(-3);
+		events = tracker.update();
+		Assert.assertEquals(1, events.size());
+		Assert.assertFalse(events.get(0).entered);
+		Assert.assertEquals(0, tracker.intersectingPairs());
+		a.scale(3);
+		events = tracker.update();
+		Assert.assertEquals(1, events.size());
+		Assert.assertTrue(events.get(0).entered);
+	}
+
+	//
+	// Test an update with nothing moved reports nothing
+	//
+	@Test
+	public void noChangeNoEvents()
+	{
+		CollisionTracker tracker = new CollisionTracker(IntersectionRule.CIRCLE1);
+		for (int i = 0; i < 500; i++)
+			tracker.add(randomCircle(IntersectionRule.CIRCLE1));
+		Assert.assertFalse(tracker.update().isEmpty());
+		Assert.assertTrue(tracker.update().isEmpty());
+	}
+
+	/**
+	 * Run 40 ticks, moving circle i on a tick when i % stride matches the tick
+	 **/
+	private void runTicks(IntersectionRule rule, int stride)
+	{
+		CollisionTracker tracker = new CollisionTracker(rule);
+		CollisionDetector detector = new CollisionDetector(rule);
+		Map<Circle, Integer> ids = new IdentityHashMap<Circle, Integer>();
+		long[] before = new long[0];
+		for (int tick = 0; tick < 40; tick++)
+		{
+			// start with half the circles and add the rest a few at a time
+			int adding = tick == 0 ? circles.length / 2 : Math.min(20, circles.length - count);
+			for (int i = 0; i < adding; i++)
+			{
+				Circle c = randomCircle(rule);
+				ids.put(c, count);
+				circles[count++] = c;
+				tracker.add(c);
+			}
+			if (tick > 0)
+				for (int i = tick % stride; i < count; i += stride)
+				{
+					circles[i].moveBy(random.nextGaussian() * 0.5, random.nextGaussian() * 0.5);
+					// the radius drifts and can go negative, then back
+					circles[i].scale(random.nextGaussian() * 0.3);
+				}
+
+			long[] after = detector.findIntersections(Arrays.copyOf(circles, count));
+			List<CollisionTracker.Event> events = tracker.update();
+			long[] entered = new long[events.size()], exited = new long[events.size()];
+			int enters = 0, exits = 0;
+			long previous = -1;
+			for (CollisionTracker.Event e : events)
+			{
+				int first = ids.get(e.first), second = ids.get(e.second);
+				Assert.assertTrue("events are ordered by tracker index", first < second);
+				long pair = CollisionDetector.pack(first, second);
+				Assert.assertTrue("events are in order and not repeated", pair > previous);
+				previous = pair;
+				if (e.entered)
+					entered[enters++] = pair;
+				else
+					exited[exits++] = pair;
+			}
+			Assert.assertArrayEquals("tick " + tick + " enters", difference(after, before),
+					Arrays.copyOf(entered, enters));
+			Assert.assertArrayEquals("tick " + tick + " exits", difference(before, after),
+					Arrays.copyOf(exited, exits));
+			Assert.assertEquals(after.length, tracker.intersectingPairs());
+			Assert.assertEquals(count, tracker.size());
+			before = after;
+		}
+	}
+
+	private Circle randomCircle(IntersectionRule rule)
+	{
+		double x = random.nextDouble() * 100;
+		double y = random.nextDouble() * 100;
+		double r = random.nextDouble() * 2 - 0.2;
+		return rule == IntersectionRule.CIRCLE1 ? new Circle1(x, y, r) : new Circle2(x, y, r);
+	}
+
+	/**
+	 * @return the pairs in sorted array a that are not in sorted array b, in order
+	 **/
+	private static long[] difference(long[] a, long[] b)
+	{
+		long[] out = new long[a.length];
+		int n = 0;
+		for (long pair : a)
+			if (Arrays.binarySearch(b, pair) < 0)
+				out[n++] = pair;
+		return Arrays.copyOf(out, n);
+	}
+
+}
@@ -0,0 +1,74 @@
+package edu.nmsu.cs.circles;
+
+/**
+ * The intersection rules used by the Circle subclasses, written over raw coordinates so that bulk
+ * engines can apply them without going through a Circle object. Each rule gives exactly the same
+ * answer as the intersects() method of the class it is named after, including its quirks: the test
+ * is one-sided and only uses the radius of the circle doing the asking.
+ **/
+public enum IntersectionRule
+{
+	/** Same test as Circle1.intersects(): a box of half-width radius around the center **/
+	CIRCLE1
+	{
+		public boolean test(double x, double y, double radius, double otherX, double otherY)
+		{
+			return Math.abs(x - otherX) < radius && Math.abs(y - otherY) < radius;
+		}
+	},
+
+	/** Same test as Circle2.intersects(): center distance less than radius **/
+	CIRCLE2
+	{
+		public boolean test(double x, double y, double radius, double otherX, double otherY)
+		{
+			double dx = x - otherX;
+			double dy = y - otherY;
+			return Math.sqrt(dx * dx + dy * dy) < radius;
+		}
+	};
+
+	/**
+	 * Test if the circle centered at (x, y) intersects the other center, using this rule.
+	 *
+	 * @param x
+	 *          is the x coordinate of the asking circle's center
+	 * @param y
+	 *          is the y coordinate of the asking circle's center
+	 * @param radius
+	 *          is the radius of the asking circle
+	 * @param otherX
+	 *          is the x coordinate of the other circle's center
+	 * @param otherY
+	 *          is the y coordinate of the other circle's center
+	 * @return True if the rule says the circles intersect, False otherwise
+	 **/
+	public abstract boolean test(double x, double y, double radius, double otherX, double otherY);
+
+	/**
+	 * Test a pair of circles in both directions. Since the rules are one-sided, a pair counts as
+	 * intersecting if either circle says it intersects the other.
+	 *
+	 * @param a
+	 *          is one circle
+	 * @param b
+	 *          is the other circle
+	 * @return True if a intersects b or b intersects a under this rule
+	 **/
+	public boolean test(Circle a, Circle b)
+	{
+		return test(a.center.x, a.center.y, a.radius, b.center.x, b.center.y)
+				|| test(b.center.x, b.center.y, b.radius, a.center.x, a.center.y);
+	}
+
+	/**
+	 * Both rules need the x distance between centers to be below the asking circle's radius, so a
+	 * pair can only intersect when |dx| is below the larger of the two radii. Broad phases use this to
+	 * prune along the x axis.
+	 **/
+	static double reach(double radius)
+	{
+		return radius > 0 ? radius : 0;
+	}
+
+}
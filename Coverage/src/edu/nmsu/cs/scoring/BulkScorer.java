@@ -0,0 +1,223 @@
+package edu.nmsu.cs.scoring;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/***
+ * Bulk Dragon Racing Scoring
+ *
+ * Scores whole heats at once. The three judges' scores come in as three parallel int arrays (one
+ * entry per competitor) and the overall scores, the sum of the two highest, go into an output
+ * array. The same pass checks every score is from 0 to 50 (inclusive) and returns a bitmap with
+ * one bit per competitor, set when any of that competitor's scores is out of range; those
+ * competitors get an overall score of -1. The inner loop has no data-dependent branches, so its
+ * speed does not depend on what the scores are.
+ *
+ * Running main() cross-checks the bulk scores against overallScore() on RacingScore1 and
+ * RacingScore2 for random heats and reports how many competitors each one disagrees on.
+ ***/
+
+public class BulkScorer
+{
+
+	public static final int	MIN_SCORE	= 0;
+
+	public static final int	MAX_SCORE	= 50;
+
+	/** rows per parallel task; a multiple of 64 so tasks never share a bitmap word **/
+	static final int				CHUNK			= 1 << 16;
+
+	/**
+	 * The overall score for one competitor: the sum of the two highest scores.
+	 **/
+	public static int overallScore(int s1, int s2, int s3)
+	{
+		return s1 + s2 + s3 - Math.min(Math.min(s1, s2), s3);
+	}
+
+	/**
+	 * Score a heat on the calling thread.
+	 *
+	 * @param s1
+	 *          are the first judge's scores
+	 * @param s2
+	 *          are the second judge's scores
+	 * @param s3
+	 *          are the third judge's scores
+	 * @param out
+	 *          receives the overall scores, or -1 for a competitor with an invalid score
+	 * @return the invalid-row bitmap: bit (i % 64) of word (i / 64) is set if row i is invalid
+	 **/
+	public static long[] score(int[] s1, int[] s2, int[] s3, int[] out)
+	{
+		long[] invalid = bitmap(s1, s2, s3, out);
+		score(s1, s2, s3, out, invalid, 0, out.length);
+		return invalid;
+	}
+
+	/**
+	 * Score a heat with the rows split into chunks across the common fork-join pool. Gives exactly
+	 * the same results as score().
+	 **/
+	public static long[] scoreParallel(int[] s1, int[] s2, int[] s3, int[] out)
+	{
+		long[] invalid = bitmap(s1, s2, s3, out);
+		ForkJoinPool.commonPool().invoke(new ScoreTask(s1, s2, s3, out, invalid, 0, out.length));
+		return invalid;
+	}
+
+	/**
+	 * @return True if the bitmap marks the row invalid
+	 **/
+	public static boolean isInvalid(long[] invalid, int row)
+	{
+		return (invalid[row >>> 6] & (1L << row)) != 0;
+	}
+
+	/**
+	 * @return the number of rows the bitmap marks invalid
+	 **/
+	public static int countInvalid(long[] invalid)
+	{
+		int count = 0;
+		for (long word : invalid)
+			count += Long.bitCount(word);
+		return count;
+	}
+
+	private static long[] bitmap(int[] s1, int[] s2, int[] s3, int[] out)
+	{
+		if (s1.length != out.length || s2.length != out.length || s3.length != out.length)
+			throw new IllegalArgumentException("score and output arrays must be the same length");
+		return new long[(out.length + 63) >>> 6];
+	}
+
+	/**
+	 * Score rows [from, to); from must be a multiple of 64.
+	 **/
+	static void score(int[] s1, int[] s2, int[] s3, int[] out, long[] invalid, int from, int to)
+	{
+		for (int base = from; base < to; base += 64)
+		{
+			int end = Math.min(base + 64, to);
+			long bits = 0;
+			for (int i = base; i < end; i++)
+			{
+				int a = s1[i], b = s2[i], c = s3[i];
+				// the sign bit is set if any score is below MIN_SCORE or above MAX_SCORE
+				int bad = ((a - MIN_SCORE) | (b - MIN_SCORE) | (c - MIN_SCORE) | (MAX_SCORE - a)
+						| (MAX_SCORE - b) | (MAX_SCORE - c)) >>> 31;
+				out[i] = overallScore(a, b, c) | -bad;
+				bits |= (long) bad << (i - base);
+			}
+			invalid[base >>> 6] = bits;
+		}
+	}
+
+	private static class ScoreTask extends RecursiveAction
+	{
+		private static final long	serialVersionUID	= 1L;
+
+		private final int[]		s1, s2, s3, out;
+
+		private final long[]	invalid;
+
+		private final int			from, to;
+
+		ScoreTask(int[] s1, int[] s2, int[] s3, int[] out, long[] invalid, int from, int to)
+		{
+			this.s1 = s1;
+			this.s2 = s2;
+			this.s3 = s3;
+			this.out = out;
+			this.invalid = invalid;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute()
+		{
+			if (to - from <= CHUNK)
+			{
+				score(s1, s2, s3, out, invalid, from, to);
+				return;
+			}
+			int mid = (from + (to - from) / 2) & ~63;
+			invokeAll(new ScoreTask(s1, s2, s3, out, invalid, from, mid),
+					new ScoreTask(s1, s2, s3, out, invalid, mid, to));
+		}
+	}
+
+	/**
+	 * Cross-check against RacingScore1 and RacingScore2, then time the bulk scorer. Optional
+	 * argument is the number of competitors (default one million).
+	 **/
+	public static void main(String args[])
+	{
+		int n = 1000000;
+		if (args.length > 1)
+		{
+			System.err.println("Error: at most one argument (number of competitors)!");
+			return;
+		}
+		try
+		{
+			if (args.length == 1)
+				n = Integer.parseInt(args[0]);
+		}
+		catch (Exception e)
+		{
+			System.err.println("Error: argument must be an integer!");
+			return;
+		}
+		int[] s1 = new int[n], s2 = new int[n], s3 = new int[n], out = new int[n];
+		Random random = new Random(371);
+		for (int i = 0; i < n; i++)
+		{
+			// mostly valid scores, with some out of range on either side
+			s1[i] = random.nextInt(56) - 2;
+			s2[i] = random.nextInt(56) - 2;
+			s3[i] = random.nextInt(56) - 2;
+		}
+
+		long[] invalid = score(s1, s2, s3, out);
+		int[] parallelOut = new int[n];
+		long[] parallelInvalid = scoreParallel(s1, s2, s3, parallelOut);
+		boolean same = Arrays.equals(out, parallelOut)
+				&& Arrays.equals(invalid, parallelInvalid);
+		System.out.println("Parallel matches sequential: " + same);
+		System.out.println("Invalid competitors: " + countInvalid(invalid));
+
+		RacingScore1 score1 = new RacingScore1();
+		RacingScore2 score2 = new RacingScore2();
+		int differ1 = 0, differ2 = 0;
+		for (int i = 0; i < n; i++)
+		{
+			if (isInvalid(invalid, i))
+				continue;
+			score1.recordScores(s1[i], s2[i], s3[i]);
+			score2.recordScores(s1[i], s2[i], s3[i]);
+			if (score1.overallScore() != out[i])
+				differ1++;
+			if (score2.overallScore() != out[i])
+				differ2++;
+		}
+		System.out.println("RacingScore1 disagrees on " + differ1 + " valid competitors");
+		System.out.println("RacingScore2 disagrees on " + differ2 + " valid competitors");
+
+		for (int round = 0; round < 5; round++)
+		{
+			long start = System.nanoTime();
+			score(s1, s2, s3, out);
+			long middle = System.nanoTime();
+			scoreParallel(s1, s2, s3, out);
+			long end = System.nanoTime();
+			System.out.printf("Sequential: %.1f M/s, parallel: %.1f M/s%n", n * 1e3 / (middle - start),
+					n * 1e3 / (end - middle));
+		}
+		return;
+	}
+
+} // end class
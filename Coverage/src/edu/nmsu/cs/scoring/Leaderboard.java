@@ -0,0 +1,322 @@
+package edu.nmsu.cs.scoring;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/***
+ * Live Dragon Racing Leaderboard
+ *
+ * Ranks competitors by overall score while judges' scores come in from many threads. Submitting
+ * scores for a competitor that is already on the board replaces them (a correction).
+ *
+ * The whole board is an immutable Snapshot: two persistent treaps, one ordered by rank (score high
+ * to low, then competitor number) and one by competitor number, both keeping subtree sizes so rank
+ * lookups take O(log N). A submission builds a new snapshot that shares all but O(log N) nodes with
+ * the old one and installs it with a compare-and-set, retrying if another thread got there first.
+ * Nothing ever locks: readers just grab the current snapshot, which never changes under them, so
+ * rank and top-K queries are always consistent and never hold up a writer.
+ ***/
+
+public class Leaderboard
+{
+
+	/** the highest possible overall score **/
+	public static final int									MAX_OVERALL	= 2 * BulkScorer.MAX_SCORE;
+
+	private static final Snapshot						EMPTY				= new Snapshot(null, null);
+
+	private final AtomicReference<Snapshot>	current			= new AtomicReference<Snapshot>(EMPTY);
+
+	/**
+	 * Record (or correct) a competitor's scores.
+	 *
+	 * @param competitor
+	 *          is the competitor number, zero or more
+	 * @param s1
+	 *          is the first judge's score, 0 to 50
+	 * @param s2
+	 *          is the second judge's score, 0 to 50
+	 * @param s3
+	 *          is the third judge's score, 0 to 50
+	 * @return the competitor's overall score
+	 **/
+	public int submit(int competitor, int s1, int s2, int s3)
+	{
+		if (competitor < 0)
+			throw new IllegalArgumentException("competitor number must not be negative");
+		if (s1 < BulkScorer.MIN_SCORE || s1 > BulkScorer.MAX_SCORE || s2 < BulkScorer.MIN_SCORE
+				|| s2 > BulkScorer.MAX_SCORE || s3 < BulkScorer.MIN_SCORE || s3 > BulkScorer.MAX_SCORE)
+			throw new IllegalArgumentException("scores must be between 0 and 50");
+		int overall = BulkScorer.overallScore(s1, s2, s3);
+		while (true)
+		{
+			Snapshot old = current.get();
+			Snapshot next = old.with(competitor, overall);
+			if (next == old || current.compareAndSet(old, next))
+				return overall;
+		}
+	}
+
+	/**
+	 * Take a competitor off the board.
+	 *
+	 * @return True if the competitor was on the board
+	 **/
+	public boolean remove(int competitor)
+	{
+		while (true)
+		{
+			Snapshot old = current.get();
+			Snapshot next = old.without(competitor);
+			if (next == old)
+				return false;
+			if (current.compareAndSet(old, next))
+				return true;
+		}
+	}
+
+	/**
+	 * @return the board as it is right now; it never changes, however many submissions follow
+	 **/
+	public Snapshot snapshot()
+	{
+		return current.get();
+	}
+
+	/**
+	 * A consistent, unchanging view of the whole board.
+	 **/
+	public static class Snapshot
+	{
+		private final Node	byRank;
+
+		private final Node	byCompetitor;
+
+		private Snapshot(Node byRank, Node byCompetitor)
+		{
+			this.byRank = byRank;
+			this.byCompetitor = byCompetitor;
+		}
+
+		/**
+		 * @return the number of competitors on the board
+		 **/
+		public int size()
+		{
+			return Leaderboard.size(byRank);
+		}
+
+		/**
+		 * @return the competitor's overall score, or -1 if they are not on the board
+		 **/
+		public int scoreOf(int competitor)
+		{
+			Node n = find(byCompetitor, competitor);
+			return n == null ? -1 : n.value;
+		}
+
+		/**
+		 * Competition ranking: 1 plus the number of competitors with a strictly higher score, so tied
+		 * competitors share a rank.
+		 *
+		 * @return the competitor's rank, or -1 if they are not on the board
+		 **/
+		public int rank(int competitor)
+		{
+			int score = scoreOf(competitor);
+			if (score < 0)
+				return -1;
+			return countLess(byRank, rankKey(score, 0)) + 1;
+		}
+
+		/**
+		 * @return up to k competitor numbers, best first (ties by competitor number)
+		 **/
+		public int[] top(int k)
+		{
+			int[] ids = new int[Math.max(0, Math.min(k, size()))];
+			Node[] stack = new Node[64];
+			int depth = 0, count = 0;
+			Node n = byRank;
+			while (count < ids.length)
+			{
+				while (n != null)
+				{
+					if (depth == stack.length)
+						stack = Arrays.copyOf(stack, depth * 2);
+					stack[depth++] = n;
+					n = n.left;
+				}
+				n = stack[--depth];
+				ids[count++] = (int) n.key;
+				n = n.right;
+			}
+			return ids;
+		}
+
+		Snapshot with(int competitor, int overall)
+		{
+			Node old = find(byCompetitor, competitor);
+			if (old != null && old.value == overall)
+				return this;
+			Node rank = byRank;
+			if (old != null)
+				rank = delete(rank, rankKey(old.value, competitor));
+			rank = insert(rank, rankKey(overall, competitor), overall);
+			return new Snapshot(rank, insert(byCompetitor, competitor, overall));
+		}
+
+		Snapshot without(int competitor)
+		{
+			Node old = find(byCompetitor, competitor);
+			if (old == null)
+				return this;
+			return new Snapshot(delete(byRank, rankKey(old.value, competitor)),
+					delete(byCompetitor, competitor));
+		}
+
+		/** true if both trees hold the same competitors and the rank order is sorted **/
+		boolean check()
+		{
+			if (Leaderboard.size(byRank) != Leaderboard.size(byCompetitor))
+				return false;
+			int[] ids = top(size());
+			for (int i = 0; i < ids.length; i++)
+			{
+				if (i > 0 && rankKey(scoreOf(ids[i - 1]), ids[i - 1]) >= rankKey(scoreOf(ids[i]), ids[i]))
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Rank order as one long: higher scores first, then lower competitor numbers.
+	 **/
+	static long rankKey(int overall, int competitor)
+	{
+		return ((long) (MAX_OVERALL - overall) << 32) | competitor;
+	}
+
+	/**
+	 * Immutable treap node. The heap priority is a hash of the key, so tree shape depends only on
+	 * what is in it.
+	 **/
+	private static class Node
+	{
+		final long	key;
+
+		final int		value;
+
+		final int		priority;
+
+		final int		size;
+
+		final Node	left, right;
+
+		Node(long key, int value, Node left, Node right)
+		{
+			this(key, value, priority(key), left, right);
+		}
+
+		Node(long key, int value, int priority, Node left, Node right)
+		{
+			this.key = key;
+			this.value = value;
+			this.priority = priority;
+			this.left = left;
+			this.right = right;
+			this.size = 1 + size(left) + size(right);
+		}
+
+		Node withChildren(Node left, Node right)
+		{
+			return new Node(key, value, priority, left, right);
+		}
+	}
+
+	private static int priority(long key)
+	{
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	private static int size(Node n)
+	{
+		return n == null ? 0 : n.size;
+	}
+
+	private static Node find(Node n, long key)
+	{
+		while (n != null && n.key != key)
+			n = key < n.key ? n.left : n.right;
+		return n;
+	}
+
+	private static int countLess(Node n, long key)
+	{
+		int count = 0;
+		while (n != null)
+		{
+			if (n.key < key)
+			{
+				count += size(n.left) + 1;
+				n = n.right;
+			}
+			else
+				n = n.left;
+		}
+		return count;
+	}
+
+	/**
+	 * Split into keys below key and keys at or above it, copying only the nodes on the search path.
+	 **/
+	private static Node[] split(Node n, long key)
+	{
+		if (n == null)
+			return new Node[2];
+		if (n.key < key)
+		{
+			Node[] parts = split(n.right, key);
+			parts[0] = n.withChildren(n.left, parts[0]);
+			return parts;
+		}
+		Node[] parts = split(n.left, key);
+		parts[1] = n.withChildren(parts[1], n.right);
+		return parts;
+	}
+
+	/**
+	 * Join two trees where every key in a is below every key in b.
+	 **/
+	private static Node merge(Node a, Node b)
+	{
+		if (a == null)
+			return b;
+		if (b == null)
+			return a;
+		if (a.priority > b.priority)
+			return a.withChildren(a.left, merge(a.right, b));
+		return b.withChildren(merge(a, b.left), b.right);
+	}
+
+	private static Node insert(Node n, long key, int value)
+	{
+		Node[] below = split(n, key);
+		Node[] above = split(below[1], key + 1);
+		return merge(merge(below[0], new Node(key, value, null, null)), above[1]);
+	}
+
+	private static Node delete(Node n, long key)
+	{
+		Node[] below = split(n, key);
+		Node[] above = split(below[1], key + 1);
+		return merge(below[0], above[1]);
+	}
+
+} // end class
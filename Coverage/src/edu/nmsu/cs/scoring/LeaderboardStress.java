@@ -0,0 +1,129 @@
+package edu.nmsu.cs.scoring;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/***
+ * Leaderboard Stress Test
+ *
+ * Hammers a Leaderboard with score submissions and corrections from many writer threads while a
+ * reader thread keeps taking snapshots and asking for ranks and the top ten. Each writer owns the
+ * competitor numbers equal to its thread number mod the thread count, so at the end every
+ * competitor that was submitted must be on the board with the last score its writer submitted, and
+ * nobody else may be; a lost compare-and-set update would break that. Reports submissions and
+ * snapshots per second.
+ *
+ * Arguments (all optional): writers competitors seconds
+ ***/
+
+public class LeaderboardStress
+{
+
+	public static void main(String args[])
+	{
+		int writers = Runtime.getRuntime().availableProcessors();
+		int competitors = 100000;
+		int seconds = 5;
+		try
+		{
+			if (args.length > 0)
+				writers = Integer.parseInt(args[0]);
+			if (args.length > 1)
+				competitors = Integer.parseInt(args[1]);
+			if (args.length > 2)
+				seconds = Integer.parseInt(args[2]);
+		}
+		catch (Exception e)
+		{
+			System.err.println("Error: arguments must be integers (writers competitors seconds)!");
+			return;
+		}
+		if (writers < 1 || competitors < writers || seconds < 1)
+		{
+			System.err.println("Error: need at least one writer, one competitor per writer and one second!");
+			return;
+		}
+
+		final Leaderboard board = new Leaderboard();
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final LongAdder submissions = new LongAdder();
+		final int[] last = new int[competitors];
+		final boolean[] submitted = new boolean[competitors];
+		final int count = competitors, threads = writers;
+		final boolean[] consistent = { true };
+		final long[] snapshots = { 0 };
+
+		Thread[] writing = new Thread[writers];
+		for (int t = 0; t < writers; t++)
+		{
+			final int me = t;
+			writing[t] = new Thread(() -> {
+				Random random = new Random(me);
+				int mine = (count - me + threads - 1) / threads;
+				while (running.get())
+				{
+					int competitor = me + threads * random.nextInt(mine);
+					last[competitor] = board.submit(competitor, random.nextInt(51), random.nextInt(51),
+							random.nextInt(51));
+					submitted[competitor] = true;
+					submissions.increment();
+				}
+			}, "writer-" + t);
+		}
+		Thread reading = new Thread(() -> {
+			Random random = new Random(-1);
+			while (running.get())
+			{
+				Leaderboard.Snapshot snapshot = board.snapshot();
+				int[] top = snapshot.top(10);
+				if (top.length > 0 && snapshot.rank(top[0]) != 1)
+					consistent[0] = false;
+				for (int i = 1; i < top.length; i++)
+					if (snapshot.scoreOf(top[i]) > snapshot.scoreOf(top[i - 1]))
+						consistent[0] = false;
+				snapshot.rank(random.nextInt(count));
+				snapshots[0]++;
+			}
+		}, "reader");
+
+		long start = System.nanoTime();
+		for (Thread t : writing)
+			t.start();
+		reading.start();
+		try
+		{
+			Thread.sleep(seconds * 1000L);
+			running.set(false);
+			for (Thread t : writing)
+				t.join();
+			reading.join();
+		}
+		catch (InterruptedException e)
+		{
+			System.err.println("Error: interrupted!");
+			return;
+		}
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		Leaderboard.Snapshot end = board.snapshot();
+		int wrong = 0, expectedSize = 0;
+		for (int c = 0; c < competitors; c++)
+		{
+			// a lost update shows up as a missing competitor or an older score
+			int expected = submitted[c] ? last[c] : -1;
+			if (end.scoreOf(c) != expected)
+				wrong++;
+			if (submitted[c])
+				expectedSize++;
+		}
+		System.out.println("Writers: " + writers + ", competitors on board: " + end.size());
+		System.out.printf("Submissions: %,.0f/s, snapshots: %,.0f/s%n", submissions.sum() / elapsed,
+				snapshots[0] / elapsed);
+		System.out.println("Snapshots consistent: " + consistent[0]);
+		System.out.println("Final board consistent: " + (end.check() && end.size() == expectedSize));
+		System.out.println("Scores that differ from last submission: " + wrong);
+		return;
+	}
+
+} // end class
@@ -0,0 +1,405 @@
+package edu.nmsu.cs.scoring;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***
+ * Dragon Racing Score File Ingestion
+ *
+ * Streams a file of judge scores through BulkScorer. A reader thread maps the input a window at a
+ * time, parses scores into fixed-size blocks of primitive columns and hands each block to a fixed
+ * pool of scoring workers; this thread writes scored blocks out in input order. There is a fixed
+ * number of blocks, and the reader has to wait for a free one before parsing more, so a slow disk
+ * or slow workers hold the reader back (backpressure) and memory use stays the same for any file
+ * size.
+ *
+ * A csv file has one competitor per line, "s1,s2,s3", and blank lines and '#' comment lines are
+ * skipped; the output has one line per competitor, the overall score or "invalid" if a score is not
+ * from 0 to 50. A bin file has three big-endian ints per competitor (DataOutputStream.writeInt())
+ * and the output has one big-endian int each, -1 if invalid.
+ ***/
+
+public class ScoreIngest
+{
+
+	/** competitors per block **/
+	static final int	BLOCK_ROWS	= 1 << 16;
+
+	/** bytes per binary record: three ints **/
+	static final int	RECORD			= 12;
+
+	/** how much of the input file is mapped at a time; a whole number of binary records **/
+	static final int	WINDOW			= RECORD << 22;
+
+	/** output is buffered in this many bytes before being written to the channel **/
+	static final int	OUT_BUFFER	= 1 << 20;
+
+	/**
+	 * A block of competitors: the judges' scores in columns, and the results once scored.
+	 **/
+	static class Block
+	{
+		final int[]		s1		= new int[BLOCK_ROWS];
+
+		final int[]		s2		= new int[BLOCK_ROWS];
+
+		final int[]		s3		= new int[BLOCK_ROWS];
+
+		final int[]		out		= new int[BLOCK_ROWS];
+
+		final long[]	invalid	= new long[BLOCK_ROWS >>> 6];
+
+		int						rows;
+
+		Block score()
+		{
+			BulkScorer.score(s1, s2, s3, out, invalid, 0, rows);
+			return this;
+		}
+	}
+
+	private final boolean												binary;
+
+	private final BlockingQueue<Block>					free;
+
+	private final BlockingQueue<Future<Block>>	scored;
+
+	private final ExecutorService								workers;
+
+	/** reader state: the block being filled and the csv line being parsed **/
+	private Block																block;
+
+	private long																line				= 1;
+
+	private final int[]													fields			= new int[3];
+
+	private int																	field;
+
+	private long																value;
+
+	private boolean															digits, signed, negative, spaced, comment;
+
+	/** writer state **/
+	private final ByteBuffer										outBuffer	= ByteBuffer.allocateDirect(OUT_BUFFER);
+
+	private FileChannel													out;
+
+	private long																rows;
+
+	private long																started;
+
+	private ScoreIngest(boolean binary, int threads)
+	{
+		this.binary = binary;
+		// two blocks per worker keeps every worker busy while the reader and writer work on others
+		int blocks = threads * 2 + 2;
+		free = new ArrayBlockingQueue<Block>(blocks);
+		scored = new ArrayBlockingQueue<Future<Block>>(blocks + 1);
+		for (int i = 0; i < blocks; i++)
+			free.add(new Block());
+		workers = Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Score every competitor in a file.
+	 *
+	 * @param format
+	 *          is "csv" or "bin"
+	 * @param input
+	 *          is the path of the score file
+	 * @param output
+	 *          is the path to write overall scores to
+	 * @param threads
+	 *          is the number of scoring workers
+	 * @return the number of competitors scored
+	 **/
+	public static long run(String format, String input, String output, int threads)
+			throws IOException, InterruptedException
+	{
+		boolean binary;
+		if (format.equals("csv"))
+			binary = false;
+		else if (format.equals("bin"))
+			binary = true;
+		else
+			throw new IllegalArgumentException("format must be csv or bin, not " + format);
+		ScoreIngest ingest = new ScoreIngest(binary, threads);
+		Thread reader = null;
+		try (FileChannel in = FileChannel.open(Paths.get(input), StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(Paths.get(output), StandardOpenOption.WRITE,
+						StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			ingest.out = out;
+			ingest.started = System.nanoTime();
+			reader = new Thread(() -> ingest.read(in), "score-reader");
+			reader.setDaemon(true);
+			reader.start();
+			ingest.write();
+			reader.join();
+			double seconds = Math.max(System.nanoTime() - ingest.started, 1) / 1e9;
+			System.err.printf("Done: %,d competitors, %,.0f competitors/s%n", ingest.rows,
+					ingest.rows / seconds);
+			return ingest.rows;
+		}
+		finally
+		{
+			// if the writer failed, the reader may be stuck waiting for a free block
+			if (reader != null)
+				reader.interrupt();
+			ingest.workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Reader thread: parse the input into blocks and queue them for scoring. Ends the queue with a
+	 * null block, or a failed one if the input is bad.
+	 **/
+	private void read(FileChannel channel)
+	{
+		try
+		{
+			block = free.take();
+			block.rows = 0;
+			if (binary)
+				readBinary(channel);
+			else
+				readCsv(channel);
+			if (block.rows > 0)
+				submit();
+			scored.put(CompletableFuture.completedFuture(null));
+		}
+		catch (Exception e)
+		{
+			// never blocks: the queue has room for every block plus one more entry, so this only
+			// fails if the writer has stopped taking, and then nobody is waiting for it anyway
+			CompletableFuture<Block> failed = new CompletableFuture<Block>();
+			failed.completeExceptionally(e);
+			scored.offer(failed);
+		}
+	}
+
+	private void submit() throws InterruptedException
+	{
+		final Block full = block;
+		scored.put(workers.submit(() -> full.score()));
+		block = free.take();
+		block.rows = 0;
+	}
+
+	private void add(int s1, int s2, int s3) throws InterruptedException
+	{
+		int row = block.rows++;
+		block.s1[row] = s1;
+		block.s2[row] = s2;
+		block.s3[row] = s3;
+		if (block.rows == BLOCK_ROWS)
+			submit();
+	}
+
+	/**
+	 * Feed the file to the csv parser a byte at a time, a window at a time. The parser keeps its
+	 * place in a line from one window to the next, so windows can end anywhere.
+	 **/
+	private void readCsv(FileChannel channel) throws IOException, InterruptedException
+	{
+		long size = channel.size();
+		for (long offset = 0; offset < size; offset += WINDOW)
+		{
+			int length = (int) Math.min(WINDOW, size - offset);
+			ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+			for (int at = 0; at < length; at++)
+				csv(window.get(at));
+		}
+		// a last line without a line break
+		csv((byte) '\n');
+	}
+
+	private void readBinary(FileChannel channel) throws IOException, InterruptedException
+	{
+		long size = channel.size();
+		if (size % RECORD != 0)
+			throw new IOException("binary input is not a whole number of " + RECORD + "-byte records");
+		for (long offset = 0; offset < size; offset += WINDOW)
+		{
+			int length = (int) Math.min(WINDOW, size - offset);
+			ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+			for (int at = 0; at < length; at += RECORD)
+				add(window.getInt(at), window.getInt(at + 4), window.getInt(at + 8));
+		}
+	}
+
+	/**
+	 * One step of the csv parser: three comma-separated integers per line, blanks allowed around
+	 * each, and a line that starts with '#' (after any blanks) or holds only blanks is skipped.
+	 **/
+	private void csv(byte b) throws InterruptedException
+	{
+		if (b == '\n')
+		{
+			if (!comment && (field > 0 || digits || signed))
+			{
+				endField();
+				if (field != 3)
+					throw bad();
+				add(fields[0], fields[1], fields[2]);
+			}
+			line++;
+			field = 0;
+			comment = false;
+		}
+		else if (comment || b == ' ' || b == '\t' || b == '\r')
+			spaced = digits || signed;
+		else if (b >= '0' && b <= '9' && !spaced)
+		{
+			digits = true;
+			value = value * 10 + (b - '0');
+			if (value > Integer.MAX_VALUE + 1L)
+				throw new NumberFormatException("line " + line + ": score out of int range");
+		}
+		else if (b == ',' && field < 2)
+			endField();
+		else if ((b == '-' || b == '+') && !digits && !signed)
+		{
+			signed = true;
+			negative = b == '-';
+		}
+		else if (b == '#' && field == 0 && !digits && !signed)
+			comment = true;
+		else
+			throw bad();
+	}
+
+	private void endField()
+	{
+		if (!digits)
+			throw bad();
+		long v = negative ? -value : value;
+		if (v > Integer.MAX_VALUE)
+			throw new NumberFormatException("line " + line + ": score out of int range");
+		fields[field++] = (int) v;
+		value = 0;
+		digits = signed = negative = spaced = false;
+	}
+
+	private NumberFormatException bad()
+	{
+		return new NumberFormatException("line " + line + ": expected s1,s2,s3");
+	}
+
+	/**
+	 * Writer (calling thread): take scored blocks in input order, write them out and give them back
+	 * to the reader.
+	 **/
+	private void write() throws IOException, InterruptedException
+	{
+		while (true)
+		{
+			Block done;
+			try
+			{
+				done = scored.take().get();
+			}
+			catch (ExecutionException e)
+			{
+				if (e.getCause() instanceof IOException)
+					throw (IOException) e.getCause();
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new IOException(e.getCause());
+			}
+			if (done == null)
+				break;
+			for (int i = 0; i < done.rows; i++)
+			{
+				if (outBuffer.remaining() < 12)
+					flush();
+				if (binary)
+					outBuffer.putInt(done.out[i]);
+				else if (BulkScorer.isInvalid(done.invalid, i))
+					putAscii("invalid\n");
+				else
+				{
+					putDecimal(done.out[i]);
+					outBuffer.put((byte) '\n');
+				}
+			}
+			rows += done.rows;
+			free.put(done);
+			if (rows % (BLOCK_ROWS * 64L) == 0)
+				System.err.printf("%,d competitors%n", rows);
+		}
+		flush();
+	}
+
+	/**
+	 * Write a non-negative int as decimal digits, without going through a String.
+	 **/
+	private void putDecimal(int value)
+	{
+		int digits = 1;
+		for (int v = value; v >= 10; v /= 10)
+			digits++;
+		int at = outBuffer.position() + digits;
+		outBuffer.position(at);
+		do
+		{
+			outBuffer.put(--at, (byte) ('0' + value % 10));
+			value /= 10;
+		}
+		while (value != 0);
+	}
+
+	private void putAscii(String text)
+	{
+		for (int i = 0; i < text.length(); i++)
+			outBuffer.put((byte) text.charAt(i));
+	}
+
+	private void flush() throws IOException
+	{
+		outBuffer.flip();
+		while (outBuffer.hasRemaining())
+			out.write(outBuffer);
+		outBuffer.clear();
+	}
+
+	public static void main(String args[])
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (args.length != 3 && args.length != 4)
+		{
+			System.err.println("Error: arguments must be csv|bin infile outfile [workers]!");
+			return;
+		}
+		try
+		{
+			if (args.length == 4)
+				threads = Integer.parseInt(args[3]);
+		}
+		catch (Exception e)
+		{
+			System.err.println("Error: workers must be an integer!");
+			return;
+		}
+		try
+		{
+			run(args[0], args[1], args[2], threads);
+		}
+		catch (Exception e)
+		{
+			System.err.println("Error: " + e);
+		}
+		return;
+	}
+
+} // end class
@@ -0,0 +1,895 @@
+package edu.nmsu.cs.scoring;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/***
+ * Durable Dragon Racing Score Store
+ *
+ * Keeps every score submission in an append-only log of fixed-width records, so scores survive the
+ * process. A record is 32 big-endian bytes:
+ *
+ * sequence (long), competitor (int), event (int), s1, s2, s3 (ints), CRC32 of the first 28 bytes
+ * (int)
+ *
+ * Submissions are committed in groups: append() and appendAll() put records in a shared batch and
+ * wait, while one committer thread writes the whole batch and forces it to disk once for everybody
+ * in it. appendAll() can fill a batch by itself, so one submitter with many rows pays for one force
+ * per batch instead of one per record. Scores are kept per competitor and event; a resubmission
+ * for the same competitor and event is a correction, and the latest one wins.
+ *
+ * Reads go through a mapped index file, a hash table from (event, competitor) to the offset of the
+ * latest record, and memory-mapped views of the log that grow in doubling steps, so a lookup is a
+ * probe or two and one read; the newest records, past the views, are read from the file directly.
+ * close() saves the index and the next open() reuses it, but only if it was closed cleanly against
+ * a log of exactly the current length; otherwise opening replays the log, checking every record's
+ * CRC, cuts off a torn last batch left by a crash, and rebuilds the index. compact() rewrites the
+ * log with only the latest record per competitor and event.
+ ***/
+
+public class ScoreStore implements Closeable
+{
+
+	/** bytes per record **/
+	static final int				RECORD				= 32;
+
+	/** records per group commit batch; also the most a crash can tear off the end of the log **/
+	static final int				BATCH_RECORDS	= 4096;
+
+	/** the log is mapped for reading in pieces of this many bytes; a whole number of records **/
+	static final long				SEGMENT				= 1L << 30;
+
+	/** the smallest view of a segment worth mapping; records before then are read directly **/
+	static final long				MIN_MAP				= 1L << 20;
+
+	/** index slots are a power of two from MIN_SLOTS to MAX_SLOTS, at most three quarters full **/
+	static final int				MIN_SLOTS			= 1 << 10;
+
+	static final int				MAX_SLOTS			= 1 << 26;
+
+	/** the most competitor and event pairs the store can hold **/
+	public static final int	MAX_KEYS			= MAX_SLOTS / 4 * 3;
+
+	static final String			LOG						= "scores.log";
+
+	static final String			INDEX					= "scores.idx";
+
+	/**
+	 * One stored submission.
+	 **/
+	public static class Entry
+	{
+		public final long	sequence;
+
+		public final int	competitor;
+
+		public final int	event;
+
+		public final int	s1;
+
+		public final int	s2;
+
+		public final int	s3;
+
+		Entry(ByteBuffer buffer, int at)
+		{
+			sequence = buffer.getLong(at);
+			competitor = buffer.getInt(at + 8);
+			event = buffer.getInt(at + 12);
+			s1 = buffer.getInt(at + 16);
+			s2 = buffer.getInt(at + 20);
+			s3 = buffer.getInt(at + 24);
+		}
+
+		public int overallScore()
+		{
+			return BulkScorer.overallScore(s1, s2, s3);
+		}
+	}
+
+	private final Path														dir;
+
+	private final Thread													committer;
+
+	/** guards the mapped views (index, log segments) and the channels they come from **/
+	private final ReentrantReadWriteLock					maps			= new ReentrantReadWriteLock();
+
+	private FileChannel														log;
+
+	private Index																	index;
+
+	private final List<MappedByteBuffer>					segments	= new ArrayList<MappedByteBuffer>();
+
+	/** bytes of the log that are on disk and indexed **/
+	private long																	readable;
+
+	/** group commit state, guarded by this **/
+	private ByteBuffer														pending		= ByteBuffer.allocateDirect(BATCH_RECORDS * RECORD);
+
+	private ByteBuffer														spare			= ByteBuffer.allocateDirect(BATCH_RECORDS * RECORD);
+
+	private final ByteBuffer											record		= ByteBuffer.allocate(RECORD);
+
+	private final CRC32														crc				= new CRC32();
+
+	private long																	nextSequence;
+
+	private long																	durableSequence;
+
+	private long																	logSize;
+
+	/** keys in the index, and records accepted but not yet indexed (each may be a new key) **/
+	private long																	keys, reserved;
+
+	private boolean																committing, compacting, closed;
+
+	private volatile IOException									failure;
+
+	private ScoreStore(Path dir)
+	{
+		this.dir = dir;
+		committer = new Thread(this::commitLoop, "score-store-committer");
+		committer.setDaemon(true);
+	}
+
+	/**
+	 * Open (or create) the store in a directory, reusing its index or recovering from the log.
+	 *
+	 * @param dir
+	 *          is the directory holding scores.log and scores.idx
+	 **/
+	public static ScoreStore open(Path dir) throws IOException
+	{
+		Files.createDirectories(dir);
+		Files.deleteIfExists(dir.resolve(LOG + ".compact"));
+		Files.deleteIfExists(dir.resolve(INDEX + ".compact"));
+		Files.deleteIfExists(dir.resolve(INDEX + ".grow"));
+		ScoreStore store = new ScoreStore(dir);
+		store.log = FileChannel.open(dir.resolve(LOG), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try
+		{
+			store.recover();
+		}
+		catch (IOException | RuntimeException e)
+		{
+			store.log.close();
+			if (store.index != null)
+				store.index.close();
+			throw e;
+		}
+		store.committer.start();
+		return store;
+	}
+
+	/**
+	 * Take the index over from a clean close if it matches the log, otherwise replay the log. Either
+	 * way the index is then marked open on disk, so a crash from here on forces a replay.
+	 **/
+	private void recover() throws IOException
+	{
+		long size = log.size();
+		index = Index.reuse(dir.resolve(INDEX), size);
+		if (index != null)
+		{
+			readable = logSize = size;
+			mapReadable();
+			nextSequence = index.lastSequence() + 1;
+		}
+		else
+			replay(size);
+		index.markOpen();
+		durableSequence = nextSequence - 1;
+		keys = index.used;
+	}
+
+	/**
+	 * Rebuild the index from the log, checking every record's CRC. The committer writes one batch
+	 * at a time, so a crash can only leave bad records among the last BATCH_RECORDS; those, and
+	 * anything after them, were never acknowledged and are cut off. A bad record any earlier means
+	 * the log itself is damaged, and opening fails rather than drop the good records after it.
+	 **/
+	private void replay(long size) throws IOException
+	{
+		long whole = size / RECORD * RECORD;
+		index = Index.create(dir.resolve(INDEX), slotsFor(whole / RECORD));
+		readable = whole;
+		mapReadable();
+		long valid = 0, sequence = 0;
+		ByteBuffer check = ByteBuffer.allocate(RECORD);
+		while (valid < whole)
+		{
+			read(valid, check);
+			crc.reset();
+			crc.update(check.array(), 0, RECORD - 4);
+			if ((int) crc.getValue() != check.getInt(RECORD - 4))
+				break;
+			sequence = Math.max(sequence, check.getLong(0));
+			index(key(check.getInt(8), check.getInt(12)), valid);
+			valid += RECORD;
+		}
+		if (valid != size)
+		{
+			if (size - valid > (long) BATCH_RECORDS * RECORD)
+				throw new IOException("score log is damaged at byte " + valid + ", " + (size - valid)
+						+ " bytes before its end");
+			segments.clear();
+			log.truncate(valid);
+			log.force(true);
+		}
+		readable = logSize = valid;
+		mapReadable();
+		nextSequence = sequence + 1;
+	}
+
+	/**
+	 * Durably record a submission. Returns once the record is on disk.
+	 *
+	 * @return the submission's sequence number
+	 **/
+	public long append(int competitor, int event, int s1, int s2, int s3) throws IOException
+	{
+		checkCompetitor(competitor);
+		synchronized (this)
+		{
+			reserve(1);
+			awaitRoom();
+			long sequence = put(competitor, event, s1, s2, s3);
+			notifyAll();
+			awaitDurable(sequence);
+			return sequence;
+		}
+	}
+
+	/**
+	 * Durably record submissions for one event, rows 0 to rows - 1 of the arrays. Returns once every
+	 * row is on disk. The rows get increasing sequence numbers, though other threads' submissions
+	 * may land between them.
+	 *
+	 * @return the last row's sequence number, or 0 if there are no rows
+	 **/
+	public long appendAll(int event, int[] competitors, int[] s1, int[] s2, int[] s3, int rows)
+			throws IOException
+	{
+		if (rows < 0 || competitors.length < rows || s1.length < rows || s2.length < rows
+				|| s3.length < rows)
+			throw new IllegalArgumentException("need " + rows + " competitors and scores");
+		for (int i = 0; i < rows; i++)
+			checkCompetitor(competitors[i]);
+		if (rows == 0)
+			return 0;
+		synchronized (this)
+		{
+			reserve(rows);
+			long sequence = 0;
+			for (int i = 0; i < rows; i++)
+			{
+				awaitRoom();
+				sequence = put(competitors[i], event, s1[i], s2[i], s3[i]);
+			}
+			notifyAll();
+			awaitDurable(sequence);
+			return sequence;
+		}
+	}
+
+	private static void checkCompetitor(int competitor)
+	{
+		if (competitor < 0)
+			throw new IllegalArgumentException("competitor number must not be negative");
+	}
+
+	/**
+	 * Make sure the index has room for rows more keys before any of them gets a sequence number, so
+	 * the committer is never handed a record it cannot index. Caller holds this.
+	 **/
+	private void reserve(int rows) throws IOException
+	{
+		checkOpen();
+		if (keys + reserved + rows > MAX_KEYS)
+			throw new IOException("score store is full: it holds at most " + MAX_KEYS
+					+ " competitor and event pairs");
+		reserved += rows;
+	}
+
+	/**
+	 * Wait until the pending batch has room for a record, waking the committer if it is full.
+	 * Caller holds this.
+	 **/
+	private void awaitRoom() throws IOException
+	{
+		while (!closed && failure == null && (compacting || !pending.hasRemaining()))
+		{
+			notifyAll();
+			await();
+		}
+		checkOpen();
+	}
+
+	/**
+	 * Add a record to the pending batch. Caller holds this and has made sure there is room.
+	 *
+	 * @return the record's sequence number
+	 **/
+	private long put(int competitor, int event, int s1, int s2, int s3)
+	{
+		long sequence = nextSequence++;
+		record.putLong(0, sequence);
+		record.putInt(8, competitor);
+		record.putInt(12, event);
+		record.putInt(16, s1);
+		record.putInt(20, s2);
+		record.putInt(24, s3);
+		crc.reset();
+		crc.update(record.array(), 0, RECORD - 4);
+		record.putInt(RECORD - 4, (int) crc.getValue());
+		pending.put(record.array());
+		return sequence;
+	}
+
+	/** caller holds this **/
+	private void awaitDurable(long sequence) throws IOException
+	{
+		while (durableSequence < sequence && failure == null)
+			await();
+		if (durableSequence < sequence)
+			throw new IOException("score store failed", failure);
+	}
+
+	/** caller holds this **/
+	private void checkOpen() throws IOException
+	{
+		if (failure != null)
+			throw new IOException("score store failed", failure);
+		if (closed)
+			throw new IOException("score store is closed");
+	}
+
+	/**
+	 * Look up a competitor's latest submission for an event.
+	 *
+	 * @return the entry, or null if the competitor has none for that event
+	 **/
+	public Entry get(int competitor, int event) throws IOException
+	{
+		long key = key(competitor, event);
+		maps.readLock().lock();
+		try
+		{
+			long offset = offsetOf(key);
+			if (offset < 0)
+				return null;
+			ByteBuffer buffer = ByteBuffer.allocate(RECORD);
+			read(offset, buffer);
+			return new Entry(buffer, 0);
+		}
+		finally
+		{
+			maps.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of records in the log, including superseded ones
+	 **/
+	public synchronized long records()
+	{
+		return logSize / RECORD;
+	}
+
+	/**
+	 * Rewrite the log keeping only the latest record for each competitor and event, then swap it in
+	 * atomically along with a matching index. Appends wait while this runs. A failure before the
+	 * new log is in place changes nothing; a failure after it leaves the store unusable until it is
+	 * reopened.
+	 *
+	 * @return the number of superseded records dropped
+	 **/
+	public long compact() throws IOException
+	{
+		synchronized (this)
+		{
+			while (!closed && failure == null && (compacting || committing || pending.position() > 0))
+				await();
+			checkOpen();
+			compacting = true;
+		}
+		maps.writeLock().lock();
+		Path compactLog = dir.resolve(LOG + ".compact");
+		Path compactIndex = dir.resolve(INDEX + ".compact");
+		Index fresh = null;
+		boolean swapping = false;
+		try
+		{
+			fresh = Index.create(compactIndex, index.slots);
+			long kept = 0;
+			try (FileChannel out = FileChannel.open(compactLog, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				ByteBuffer buffer = ByteBuffer.allocateDirect(BATCH_RECORDS * RECORD);
+				ByteBuffer one = ByteBuffer.allocate(RECORD);
+				for (int slot = 0; slot < index.slots; slot++)
+				{
+					long offset = index.offsetAt(slot);
+					if (offset < 0)
+						continue;
+					read(offset, one);
+					buffer.put(one.array());
+					// new offsets go in the new index only; the live one keeps matching the live log
+					fresh.put(index.keyAt(slot), kept * RECORD);
+					kept++;
+					if (!buffer.hasRemaining())
+					{
+						buffer.flip();
+						writeFully(out, buffer, (kept - BATCH_RECORDS) * RECORD);
+						buffer.clear();
+					}
+				}
+				long at = (kept - buffer.position() / RECORD) * RECORD;
+				buffer.flip();
+				writeFully(out, buffer, at);
+				out.force(true);
+			}
+			long dropped;
+			synchronized (this)
+			{
+				dropped = logSize / RECORD - kept;
+			}
+
+			segments.clear();
+			log.close();
+			swapping = true;
+			try
+			{
+				Files.move(compactLog, dir.resolve(LOG), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (IOException e)
+			{
+				// the old log is still there and still matches the live index
+				log = FileChannel.open(dir.resolve(LOG), StandardOpenOption.READ, StandardOpenOption.WRITE);
+				swapping = false;
+				throw e;
+			}
+			log = FileChannel.open(dir.resolve(LOG), StandardOpenOption.READ, StandardOpenOption.WRITE);
+			index.close();
+			index = fresh;
+			fresh = null;
+			readable = kept * RECORD;
+			synchronized (this)
+			{
+				logSize = readable;
+			}
+			mapReadable();
+			Files.move(compactIndex, dir.resolve(INDEX), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+			return dropped;
+		}
+		catch (IOException e)
+		{
+			if (swapping)
+				failure = e;
+			try
+			{
+				if (fresh != null)
+				{
+					fresh.close();
+					Files.deleteIfExists(compactIndex);
+				}
+				Files.deleteIfExists(compactLog);
+			}
+			catch (IOException cleanup)
+			{
+				e.addSuppressed(cleanup);
+			}
+			throw e;
+		}
+		finally
+		{
+			maps.writeLock().unlock();
+			synchronized (this)
+			{
+				compacting = false;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Commit anything pending, stop the committer, save the index for the next open() and close the
+	 * files.
+	 **/
+	public void close() throws IOException
+	{
+		synchronized (this)
+		{
+			if (closed)
+				return;
+			closed = true;
+			notifyAll();
+		}
+		try
+		{
+			committer.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		maps.writeLock().lock();
+		try
+		{
+			segments.clear();
+			if (failure == null)
+			{
+				long size, last;
+				synchronized (this)
+				{
+					size = logSize;
+					last = durableSequence;
+				}
+				index.markClosed(size, last);
+			}
+			index.close();
+			index = null;
+			log.close();
+		}
+		finally
+		{
+			maps.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Committer thread: take the pending batch, write it, force it to disk, index it, then wake
+	 * everybody whose record was in it.
+	 **/
+	private void commitLoop()
+	{
+		while (true)
+		{
+			ByteBuffer batch;
+			long last, at;
+			synchronized (this)
+			{
+				while (pending.position() == 0 && !closed)
+				{
+					try
+					{
+						wait();
+					}
+					catch (InterruptedException e)
+					{
+						closed = true;
+					}
+				}
+				if (pending.position() == 0)
+					return;
+				batch = pending;
+				pending = spare;
+				spare = batch;
+				committing = true;
+				last = nextSequence - 1;
+				at = logSize;
+				notifyAll();
+			}
+			long end;
+			int count;
+			try
+			{
+				batch.flip();
+				count = batch.remaining() / RECORD;
+				writeFully(log, batch, at);
+				log.force(false);
+				end = at + (long) count * RECORD;
+				maps.writeLock().lock();
+				try
+				{
+					for (int i = 0; i < count; i++)
+						index(key(batch.getInt(i * RECORD + 8), batch.getInt(i * RECORD + 12)),
+								at + (long) i * RECORD);
+					readable = end;
+					mapReadable();
+				}
+				finally
+				{
+					maps.writeLock().unlock();
+				}
+			}
+			catch (IOException e)
+			{
+				synchronized (this)
+				{
+					failure = e;
+					committing = false;
+					notifyAll();
+				}
+				return;
+			}
+			batch.clear();
+			synchronized (this)
+			{
+				logSize = end;
+				durableSequence = last;
+				keys = index.used;
+				reserved -= count;
+				committing = false;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Write the buffer's remaining bytes at the given file offset.
+	 **/
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long at) throws IOException
+	{
+		while (buffer.hasRemaining())
+			at += channel.write(buffer, at);
+	}
+
+	private void await() throws InterruptedIOException
+	{
+		try
+		{
+			wait();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted waiting for the score store");
+		}
+	}
+
+	/**
+	 * Index key: event in the high half, competitor number in the low half.
+	 **/
+	static long key(int competitor, int event)
+	{
+		return ((long) event << 32) | (competitor & 0xffffffffL);
+	}
+
+	/**
+	 * @return the fewest index slots that hold this many keys without growing
+	 **/
+	static int slotsFor(long keys)
+	{
+		int slots = MIN_SLOTS;
+		while (slots < MAX_SLOTS && keys * 4 > slots * 3L)
+			slots <<= 1;
+		return slots;
+	}
+
+	/** caller holds a maps lock **/
+	private long offsetOf(long key) throws IOException
+	{
+		if (failure != null)
+			throw new IOException("score store failed", failure);
+		if (index == null)
+			throw new IOException("score store is closed");
+		return index.get(key);
+	}
+
+	/**
+	 * Point a key at a record, first moving to a table twice the size if this one is full.
+	 * reserve() keeps the keys within what MAX_SLOTS can hold. Caller holds the maps write lock.
+	 **/
+	private void index(long key, long offset) throws IOException
+	{
+		if (index.full())
+		{
+			Path grown = dir.resolve(INDEX + ".grow");
+			Index bigger = index.grow(grown);
+			index.close();
+			Files.move(grown, dir.resolve(INDEX), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+			index = bigger;
+		}
+		index.put(key, offset);
+	}
+
+	/**
+	 * Copy the record at offset into buffer[0, RECORD), from the mapped view of its segment when the
+	 * view reaches it and otherwise with a positional read. Caller holds a maps lock.
+	 **/
+	private void read(long offset, ByteBuffer buffer) throws IOException
+	{
+		int s = (int) (offset / SEGMENT);
+		int at = (int) (offset % SEGMENT);
+		MappedByteBuffer segment = s < segments.size() ? segments.get(s) : null;
+		if (segment != null && segment.limit() >= at + RECORD)
+		{
+			for (int i = 0; i < RECORD; i++)
+				buffer.put(i, segment.get(at + i));
+			return;
+		}
+		buffer.clear();
+		while (buffer.hasRemaining())
+			if (log.read(buffer, offset + buffer.position()) < 0)
+				throw new EOFException("score log ends inside the record at byte " + offset);
+		buffer.clear();
+	}
+
+	/**
+	 * Extend the mapped views over what is now readable. A view is only replaced once the readable
+	 * part of its segment has doubled, or fills the segment, so each segment is mapped about a dozen
+	 * times at most however often appends and reads alternate; read() takes the records past a view
+	 * directly from the file. A replaced view is unmapped when the garbage collector frees it. Caller
+	 * holds the maps write lock, or is opening the store.
+	 **/
+	private void mapReadable() throws IOException
+	{
+		for (int s = 0; s * SEGMENT < readable; s++)
+		{
+			if (segments.size() <= s)
+				segments.add(null);
+			MappedByteBuffer segment = segments.get(s);
+			long length = Math.min(SEGMENT, readable - s * SEGMENT);
+			long mapped = segment == null ? 0 : segment.limit();
+			if (length >= Math.max(MIN_MAP, 2 * mapped) || (length == SEGMENT && mapped < SEGMENT))
+				segments.set(s, log.map(FileChannel.MapMode.READ_ONLY, s * SEGMENT, length));
+		}
+	}
+
+	/**
+	 * The index file, mapped in full: an open-addressing hash table with linear probing. A 32-byte
+	 * header holds the log length the table was closed against (-1 while a store has it open), the
+	 * last sequence number, the slot count and the number of keys; then come 16 bytes per slot, the
+	 * key and the record's offset plus one (zero for an empty slot).
+	 **/
+	private static class Index implements Closeable
+	{
+		static final int								HEADER	= 32;
+
+		private final FileChannel				channel;
+
+		private final MappedByteBuffer	map;
+
+		final int												slots;
+
+		int															used;
+
+		private Index(FileChannel channel, int slots) throws IOException
+		{
+			this.channel = channel;
+			this.slots = slots;
+			map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + 16L * slots);
+		}
+
+		/** a new, empty table, marked open **/
+		static Index create(Path file, int slots) throws IOException
+		{
+			FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			Index index = new Index(channel, slots);
+			index.map.putLong(0, -1);
+			index.map.putInt(16, slots);
+			return index;
+		}
+
+		/** the table saved by a clean close against a log of logSize bytes, or null if there is none **/
+		static Index reuse(Path file, long logSize) throws IOException
+		{
+			if (!Files.exists(file))
+				return null;
+			FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			while (header.hasRemaining() && channel.read(header, header.position()) > 0)
+				continue;
+			int slots = header.getInt(16);
+			if (header.hasRemaining() || header.getLong(0) != logSize || Integer.bitCount(slots) != 1
+					|| slots < MIN_SLOTS || slots > MAX_SLOTS || channel.size() != HEADER + 16L * slots)
+			{
+				channel.close();
+				return null;
+			}
+			Index index = new Index(channel, slots);
+			index.used = header.getInt(20);
+			return index;
+		}
+
+		long lastSequence()
+		{
+			return map.getLong(8);
+		}
+
+		/** durably mark the table as not matching the log, before the log can change **/
+		void markOpen()
+		{
+			map.putLong(0, -1);
+			map.force();
+		}
+
+		/** save the table; the log length goes in last, once everything else is on disk **/
+		void markClosed(long logSize, long lastSequence)
+		{
+			map.putLong(8, lastSequence);
+			map.putInt(20, used);
+			map.force();
+			map.putLong(0, logSize);
+			map.force();
+		}
+
+		boolean full()
+		{
+			return (used + 1) * 4L > slots * 3L;
+		}
+
+		/**
+		 * @return the offset of the key's record, or -1 if the key is not in the table
+		 **/
+		long get(long key)
+		{
+			for (int slot = home(key);; slot = (slot + 1) & (slots - 1))
+			{
+				long offset = offsetAt(slot);
+				if (offset < 0)
+					return -1;
+				if (keyAt(slot) == key)
+					return offset;
+			}
+		}
+
+		void put(long key, long offset)
+		{
+			int slot = home(key);
+			while (offsetAt(slot) >= 0 && keyAt(slot) != key)
+				slot = (slot + 1) & (slots - 1);
+			if (offsetAt(slot) < 0)
+				used++;
+			map.putLong(HEADER + 16 * slot, key);
+			map.putLong(HEADER + 16 * slot + 8, offset + 1);
+		}
+
+		long keyAt(int slot)
+		{
+			return map.getLong(HEADER + 16 * slot);
+		}
+
+		/**
+		 * @return the offset in the slot, or -1 if it is empty
+		 **/
+		long offsetAt(int slot)
+		{
+			return map.getLong(HEADER + 16 * slot + 8) - 1;
+		}
+
+		/** a copy of this table with twice the slots, in a new file **/
+		Index grow(Path file) throws IOException
+		{
+			Index bigger = create(file, slots * 2);
+			for (int slot = 0; slot < slots; slot++)
+				if (offsetAt(slot) >= 0)
+					bigger.put(keyAt(slot), offsetAt(slot));
+			return bigger;
+		}
+
+		private int home(long key)
+		{
+			key ^= key >>> 33;
+			key *= 0xff51afd7ed558ccdL;
+			key ^= key >>> 33;
+			return (int) key & (slots - 1);
+		}
+
+		public void close() throws IOException
+		{
+			channel.close();
+		}
+	}
+
+} // end class
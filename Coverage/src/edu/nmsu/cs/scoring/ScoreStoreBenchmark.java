@@ -0,0 +1,192 @@
+package edu.nmsu.cs.scoring;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/***
+ * Score Store Benchmark
+ *
+ * Runs a ScoreStore through its paces in a directory (best started empty): many threads appending
+ * to event 1 (so group commit has something to group), one thread sending event 2 in blocks with
+ * appendAll(), random lookups, a clean reopen with the saved index, a torn half-record at the end
+ * of the log (log replay), and compaction. After each step every competitor's stored scores for
+ * both events are checked against the last ones submitted. Each event 1 thread owns the competitor
+ * numbers equal to its thread number mod the thread count so "last submitted" is well defined.
+ *
+ * Arguments: directory [threads] [submissions] [competitors]
+ ***/
+
+public class ScoreStoreBenchmark
+{
+
+	public static void main(String args[])
+	{
+		if (args.length < 1 || args.length > 4)
+		{
+			System.err.println("Error: arguments must be directory [threads] [submissions] [competitors]!");
+			return;
+		}
+		int threads = 64, submissions = 1000000, competitors = 100000;
+		try
+		{
+			if (args.length > 1)
+				threads = Integer.parseInt(args[1]);
+			if (args.length > 2)
+				submissions = Integer.parseInt(args[2]);
+			if (args.length > 3)
+				competitors = Integer.parseInt(args[3]);
+		}
+		catch (Exception e)
+		{
+			System.err.println("Error: threads, submissions and competitors must be integers!");
+			return;
+		}
+		if (threads < 1 || competitors < threads)
+		{
+			System.err.println("Error: need at least one thread and one competitor per thread!");
+			return;
+		}
+		try
+		{
+			run(Paths.get(args[0]), threads, submissions, competitors);
+		}
+		catch (Exception e)
+		{
+			System.err.println("Error: " + e);
+			e.printStackTrace();
+		}
+		return;
+	}
+
+	private static void run(Path dir, int threads, int submissions, int competitors)
+			throws IOException, InterruptedException
+	{
+		// last[e][c] is what was last submitted for competitor c in event e + 1
+		final int[][][] last = new int[2][competitors][];
+		final ScoreStore store = ScoreStore.open(dir);
+		final long before = store.records();
+		final int count = competitors, each = submissions / threads;
+		final IOException[] failed = new IOException[1];
+
+		long start = System.nanoTime();
+		Thread[] writers = new Thread[threads];
+		for (int t = 0; t < threads; t++)
+		{
+			final int me = t, total = threads;
+			writers[t] = new Thread(() -> {
+				Random random = new Random(me);
+				int mine = (count - me + total - 1) / total;
+				try
+				{
+					for (int i = 0; i < each; i++)
+					{
+						int competitor = me + total * random.nextInt(mine);
+						int[] scores = { random.nextInt(51), random.nextInt(51), random.nextInt(51) };
+						store.append(competitor, 1, scores[0], scores[1], scores[2]);
+						last[0][competitor] = scores;
+					}
+				}
+				catch (IOException e)
+				{
+					failed[0] = e;
+				}
+			});
+			writers[t].start();
+		}
+		for (Thread t : writers)
+			t.join();
+		if (failed[0] != null)
+			throw failed[0];
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long appended = store.records() - before;
+		System.out.printf("Event 1: appended %,d records with %d threads: %,.0f submissions/s%n",
+				appended, threads, appended / seconds);
+
+		// one submitter sending the same competitors' scores for event 2 a block at a time
+		Random random = new Random(-2);
+		int block = 1 << 16;
+		int[] ids = new int[block], s1 = new int[block], s2 = new int[block], s3 = new int[block];
+		start = System.nanoTime();
+		for (int done = 0; done < submissions; done += block)
+		{
+			int rows = Math.min(block, submissions - done);
+			for (int i = 0; i < rows; i++)
+			{
+				ids[i] = random.nextInt(competitors);
+				s1[i] = random.nextInt(51);
+				s2[i] = random.nextInt(51);
+				s3[i] = random.nextInt(51);
+				last[1][ids[i]] = new int[] { s1[i], s2[i], s3[i] };
+			}
+			store.appendAll(2, ids, s1, s2, s3, rows);
+		}
+		seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Event 2: appended %,d records with appendAll() on one thread: %,.0f submissions/s%n",
+				submissions, submissions / seconds);
+
+		start = System.nanoTime();
+		int lookups = 1000000;
+		for (int i = 0; i < lookups; i++)
+			store.get(random.nextInt(competitors), 1 + random.nextInt(2));
+		seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Lookups: %,.0f/s%n", lookups / seconds);
+		System.out.println("Wrong after appends: " + wrong(store, last));
+		store.close();
+
+		start = System.nanoTime();
+		ScoreStore reopened = ScoreStore.open(dir);
+		seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Reopened %,d records with the saved index in %.3f s%n", reopened.records(),
+				seconds);
+		System.out.println("Wrong after reopening: " + wrong(reopened, last));
+		reopened.close();
+
+		// a crash in the middle of a write leaves part of a record at the end of the log
+		try (FileChannel log = FileChannel.open(dir.resolve(ScoreStore.LOG), StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND))
+		{
+			log.write(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 }));
+		}
+		start = System.nanoTime();
+		reopened = ScoreStore.open(dir);
+		seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Recovered %,d records by replay in %.2f s%n", reopened.records(), seconds);
+		System.out.println("Wrong after recovery: " + wrong(reopened, last));
+
+		start = System.nanoTime();
+		long dropped = reopened.compact();
+		seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Compaction dropped %,d superseded records in %.2f s, %,d left%n", dropped,
+				seconds, reopened.records());
+		System.out.println("Wrong after compaction: " + wrong(reopened, last));
+		reopened.close();
+		reopened = ScoreStore.open(dir);
+		System.out.println("Wrong after reopening the compacted store: " + wrong(reopened, last));
+		reopened.close();
+	}
+
+	/**
+	 * @return how many competitor and event stored scores differ from the last ones submitted
+	 **/
+	private static int wrong(ScoreStore store, int[][][] last) throws IOException
+	{
+		int wrong = 0;
+		for (int e = 0; e < last.length; e++)
+			for (int c = 0; c < last[e].length; c++)
+			{
+				ScoreStore.Entry entry = store.get(c, e + 1);
+				int[] expected = last[e][c];
+				if (expected == null ? entry != null
+						: entry == null || entry.s1 != expected[0] || entry.s2 != expected[1]
+								|| entry.s3 != expected[2])
+					wrong++;
+			}
+		return wrong;
+	}
+
+} // end class
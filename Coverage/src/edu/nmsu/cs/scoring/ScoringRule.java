@@ -0,0 +1,413 @@
+package edu.nmsu.cs.scoring;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/***
+ * Dragon Racing Scoring Rules
+ *
+ * A rule turns N judges' scores into one overall score. RacingScore1, RacingScore2 and BulkScorer
+ * all hard-code "drop the lowest of three, sum the rest"; this class lets an event pick its rule
+ * and its number of judges.
+ *
+ * Most rules only care about where each score ranks (drop the lowest, drop the highest and lowest,
+ * trimmed mean), so they are described by one weight per rank, lowest score first. Compiling such a
+ * rule for a fixed N builds a sorting network for N inputs, prunes it down to the comparators that
+ * decide the ranks with non-zero weight (a selection network), and evaluates it with branch-free
+ * min/max; three judges get a hand-unrolled version. generic() gives the straightforward copy, sort
+ * and sum evaluator for comparison. byRank() builds such a rule from any per-rank weighting, and a
+ * rule that does not fit that mold can extend ScoringRule and Evaluator directly.
+ *
+ * Scores are given row-major: row r's N scores are scores[r * N] to scores[r * N + N - 1].
+ ***/
+
+public abstract class ScoringRule
+{
+
+	/**
+	 * Evaluates one rule for a fixed number of judges. An evaluator keeps scratch space, so use one
+	 * per thread.
+	 **/
+	public abstract static class Evaluator
+	{
+		/** the number of scores in each row **/
+		protected final int	judges;
+
+		protected Evaluator(int judges)
+		{
+			this.judges = judges;
+		}
+
+		/**
+		 * @return the overall score for the row whose first score is at scores[offset]
+		 **/
+		public abstract double evaluate(int[] scores, int offset);
+
+		/**
+		 * Score out.length rows.
+		 **/
+		public void evaluateAll(int[] scores, double[] out)
+		{
+			if (scores.length < (long) out.length * judges)
+				throw new IllegalArgumentException("need " + judges + " scores per output row");
+			for (int r = 0, offset = 0; r < out.length; r++, offset += judges)
+				out[r] = evaluate(scores, offset);
+		}
+	}
+
+	/**
+	 * Build the fastest evaluator this class knows for the given number of judges.
+	 **/
+	public abstract Evaluator compile(int judges);
+
+	/**
+	 * Build the plain, unspecialized evaluator for the given number of judges.
+	 **/
+	public abstract Evaluator generic(int judges);
+
+	/**
+	 * Drop the lowest score and sum the rest; with three judges this is the Olympic rule.
+	 **/
+	public static ScoringRule dropLowest()
+	{
+		return new RankRule("drop lowest", 1)
+		{
+			double[] weights(int judges)
+			{
+				double[] w = ones(judges);
+				w[0] = 0;
+				return w;
+			}
+		};
+	}
+
+	/**
+	 * Drop the lowest and the highest score and sum the rest.
+	 **/
+	public static ScoringRule dropHighAndLow()
+	{
+		return new RankRule("drop high and low", 3)
+		{
+			double[] weights(int judges)
+			{
+				double[] w = ones(judges);
+				w[0] = 0;
+				w[judges - 1] = 0;
+				return w;
+			}
+		};
+	}
+
+	/**
+	 * Drop the trim lowest and trim highest scores and average the rest.
+	 **/
+	public static ScoringRule trimmedMean(final int trim)
+	{
+		if (trim < 0)
+			throw new IllegalArgumentException("trim must not be negative");
+		return new RankRule("trimmed mean " + trim, 2 * trim + 1)
+		{
+			double[] weights(int judges)
+			{
+				double[] w = new double[judges];
+				Arrays.fill(w, trim, judges - trim, 1.0 / (judges - 2 * trim));
+				return w;
+			}
+		};
+	}
+
+	/**
+	 * Any rule given by one weight per rank, lowest score first; it gets the same compiled
+	 * evaluators as the built-in rank rules.
+	 *
+	 * @param weights
+	 *          gives the weights for a number of judges; the array must have that many entries
+	 * @param minJudges
+	 *          is the fewest judges the rule allows
+	 **/
+	public static ScoringRule byRank(final IntFunction<double[]> weights, int minJudges)
+	{
+		return new RankRule("by rank", minJudges)
+		{
+			double[] weights(int judges)
+			{
+				double[] w = weights.apply(judges);
+				if (w == null || w.length != judges)
+					throw new IllegalArgumentException("need one weight per rank for " + judges + " judges");
+				return w.clone();
+			}
+		};
+	}
+
+	/**
+	 * Weighted sum where each judge has their own weight; the number of judges is the number of
+	 * weights.
+	 **/
+	public static ScoringRule weighted(double... weights)
+	{
+		return new WeightedRule(weights.clone());
+	}
+
+	private static double[] ones(int judges)
+	{
+		double[] w = new double[judges];
+		Arrays.fill(w, 1);
+		return w;
+	}
+
+	/**
+	 * A rule given by one weight per rank, lowest score first.
+	 **/
+	private abstract static class RankRule extends ScoringRule
+	{
+		private final String	name;
+
+		private final int			minJudges;
+
+		RankRule(String name, int minJudges)
+		{
+			this.name = name;
+			this.minJudges = Math.max(1, minJudges);
+		}
+
+		abstract double[] weights(int judges);
+
+		private double[] checkedWeights(int judges)
+		{
+			if (judges < minJudges)
+				throw new IllegalArgumentException(name + " needs at least " + minJudges + " judges");
+			return weights(judges);
+		}
+
+		public Evaluator compile(int judges)
+		{
+			double[] w = checkedWeights(judges);
+			if (judges == 3)
+				return new Three(w);
+			return new Network(w);
+		}
+
+		public Evaluator generic(int judges)
+		{
+			return new Sorted(checkedWeights(judges));
+		}
+
+		public String toString()
+		{
+			return name;
+		}
+	}
+
+	/**
+	 * Baseline: copy the row, sort it, take the weighted sum.
+	 **/
+	private static class Sorted extends Evaluator
+	{
+		private final double[]	weights;
+
+		private final int[]			scratch;
+
+		Sorted(double[] weights)
+		{
+			super(weights.length);
+			this.weights = weights;
+			scratch = new int[weights.length];
+		}
+
+		public double evaluate(int[] scores, int offset)
+		{
+			System.arraycopy(scores, offset, scratch, 0, judges);
+			Arrays.sort(scratch);
+			double sum = 0;
+			for (int i = 0; i < judges; i++)
+				sum += weights[i] * scratch[i];
+			return sum;
+		}
+	}
+
+	/**
+	 * Three judges, unrolled: low and high by min/max, middle by subtraction.
+	 **/
+	private static class Three extends Evaluator
+	{
+		private final double	low, middle, high;
+
+		Three(double[] weights)
+		{
+			super(3);
+			low = weights[0];
+			middle = weights[1];
+			high = weights[2];
+		}
+
+		public double evaluate(int[] scores, int offset)
+		{
+			int a = scores[offset], b = scores[offset + 1], c = scores[offset + 2];
+			int lo = Math.min(Math.min(a, b), c);
+			int hi = Math.max(Math.max(a, b), c);
+			int mid = a + b + c - lo - hi;
+			return low * lo + middle * mid + high * hi;
+		}
+	}
+
+	/**
+	 * Any number of judges: a selection network, then a weighted sum of the ranks that count. When
+	 * all the weights that count are equal (the usual case) the ranks are summed as ints and
+	 * multiplied once.
+	 **/
+	private static class Network extends Evaluator
+	{
+		/** comparator i orders positions lo[i] < hi[i] **/
+		private final int[]			lo, hi;
+
+		private final int[]			ranks;
+
+		private final double[]	rankWeights;
+
+		private final double		common;
+
+		private final int[]			scratch;
+
+		Network(double[] weights)
+		{
+			super(weights.length);
+			int n = weights.length;
+			int count = 0;
+			for (double w : weights)
+				if (w != 0)
+					count++;
+			ranks = new int[count];
+			rankWeights = new double[count];
+			boolean[] needed = new boolean[n];
+			for (int i = 0, k = 0; i < n; i++)
+				if (weights[i] != 0)
+				{
+					ranks[k] = i;
+					rankWeights[k++] = weights[i];
+					needed[i] = true;
+				}
+			double same = count > 0 ? rankWeights[0] : Double.NaN;
+			for (double w : rankWeights)
+				if (w != same)
+					same = Double.NaN;
+			common = same;
+
+			// walk the full sorting network backwards, keeping only comparators that feed a needed rank
+			int[][] full = sortingNetwork(n);
+			int kept = 0;
+			boolean[] keep = new boolean[full.length];
+			for (int c = full.length - 1; c >= 0; c--)
+			{
+				int a = full[c][0], b = full[c][1];
+				if (needed[a] || needed[b])
+				{
+					keep[c] = true;
+					needed[a] = needed[b] = true;
+					kept++;
+				}
+			}
+			lo = new int[kept];
+			hi = new int[kept];
+			for (int c = 0, k = 0; c < full.length; c++)
+				if (keep[c])
+				{
+					lo[k] = full[c][0];
+					hi[k++] = full[c][1];
+				}
+			scratch = new int[n];
+		}
+
+		public double evaluate(int[] scores, int offset)
+		{
+			int[] s = scratch;
+			System.arraycopy(scores, offset, s, 0, judges);
+			for (int c = 0; c < lo.length; c++)
+			{
+				int a = s[lo[c]], b = s[hi[c]];
+				s[lo[c]] = Math.min(a, b);
+				s[hi[c]] = Math.max(a, b);
+			}
+			if (common == common)
+			{
+				int sum = 0;
+				for (int k = 0; k < ranks.length; k++)
+					sum += s[ranks[k]];
+				return common * sum;
+			}
+			double sum = 0;
+			for (int k = 0; k < ranks.length; k++)
+				sum += rankWeights[k] * s[ranks[k]];
+			return sum;
+		}
+	}
+
+	/**
+	 * Batcher's odd-even merge sort network for n inputs: the network for the next power of two
+	 * with every comparator that touches a position past n dropped, which still sorts because those
+	 * positions act as +infinity.
+	 **/
+	static int[][] sortingNetwork(int n)
+	{
+		int size = 1;
+		while (size < n)
+			size <<= 1;
+		int[][] pairs = new int[size * 32][];
+		int count = 0;
+		for (int p = 1; p < size; p <<= 1)
+			for (int k = p; k >= 1; k >>= 1)
+				for (int j = k % p; j + k < size; j += 2 * k)
+					for (int i = 0; i < k && i + j + k < size; i++)
+					{
+						int a = i + j, b = i + j + k;
+						if ((a / (2 * p)) == (b / (2 * p)) && b < n)
+						{
+							if (count == pairs.length)
+								pairs = Arrays.copyOf(pairs, count * 2);
+							pairs[count++] = new int[] { a, b };
+						}
+					}
+		return Arrays.copyOf(pairs, count);
+	}
+
+	/**
+	 * A rule with one weight per judge, in judge order.
+	 **/
+	private static class WeightedRule extends ScoringRule
+	{
+		private final double[]	weights;
+
+		WeightedRule(double[] weights)
+		{
+			if (weights.length == 0)
+				throw new IllegalArgumentException("need at least one weight");
+			this.weights = weights;
+		}
+
+		public Evaluator compile(int judges)
+		{
+			return generic(judges);
+		}
+
+		public Evaluator generic(int judges)
+		{
+			if (judges != weights.length)
+				throw new IllegalArgumentException("weighted rule has " + weights.length + " judges");
+			return new Evaluator(judges)
+			{
+				public double evaluate(int[] scores, int offset)
+				{
+					double sum = 0;
+					for (int i = 0; i < judges; i++)
+						sum += weights[i] * scores[offset + i];
+					return sum;
+				}
+			};
+		}
+
+		public String toString()
+		{
+			return "weighted " + Arrays.toString(weights);
+		}
+	}
+
+} // end class
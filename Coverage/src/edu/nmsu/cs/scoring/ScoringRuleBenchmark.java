@@ -0,0 +1,117 @@
+package edu.nmsu.cs.scoring;
+
+import java.util.Random;
+
+/***
+ * Scoring Rule Benchmark
+ *
+ * First cross-checks the compiled evaluators: every rank rule (the built-in ones and a median made
+ * with byRank()), compiled and generic, must agree for 3 to 9 judges, and for three judges "drop
+ * lowest" must match BulkScorer.overallScore(); it also reports how often RacingScore1 and
+ * RacingScore2 disagree with it. Then times generic against compiled evaluators over a large batch
+ * of rows for several rules and judge counts.
+ *
+ * Argument (optional): number of rows per batch
+ ***/
+
+public class ScoringRuleBenchmark
+{
+
+	public static void main(String args[])
+	{
+		int rows = 1000000;
+		try
+		{
+			if (args.length > 0)
+				rows = Integer.parseInt(args[0]);
+		}
+		catch (Exception e)
+		{
+			System.err.println("Error: argument must be an integer!");
+			return;
+		}
+		Random random = new Random(371);
+		// the median, built from a per-rank weighting the way an event would plug in its own rule
+		ScoringRule median = ScoringRule.byRank(judges -> {
+			double[] w = new double[judges];
+			w[judges / 2] = 1;
+			return w;
+		}, 1);
+		ScoringRule[] rules = { ScoringRule.dropLowest(), ScoringRule.dropHighAndLow(),
+				ScoringRule.trimmedMean(1), median };
+
+		// cross-check compiled against generic for every judge count
+		int mismatches = 0;
+		for (int judges = 3; judges <= 9; judges++)
+		{
+			int[] scores = randomScores(random, 10000 * judges);
+			for (ScoringRule rule : rules)
+			{
+				double[] compiled = new double[10000], generic = new double[10000];
+				rule.compile(judges).evaluateAll(scores, compiled);
+				rule.generic(judges).evaluateAll(scores, generic);
+				for (int r = 0; r < compiled.length; r++)
+					if (Math.abs(compiled[r] - generic[r]) > 1e-9)
+						mismatches++;
+			}
+		}
+		System.out.println("Compiled vs generic mismatches: " + mismatches);
+
+		// cross-check three judges against the existing classes
+		int[] scores = randomScores(random, 3 * 100000);
+		double[] out = new double[100000];
+		ScoringRule.dropLowest().compile(3).evaluateAll(scores, out);
+		RacingScore1 score1 = new RacingScore1();
+		RacingScore2 score2 = new RacingScore2();
+		int differBulk = 0, differ1 = 0, differ2 = 0;
+		for (int r = 0; r < out.length; r++)
+		{
+			int a = scores[3 * r], b = scores[3 * r + 1], c = scores[3 * r + 2];
+			score1.recordScores(a, b, c);
+			score2.recordScores(a, b, c);
+			if (BulkScorer.overallScore(a, b, c) != out[r])
+				differBulk++;
+			if (score1.overallScore() != out[r])
+				differ1++;
+			if (score2.overallScore() != out[r])
+				differ2++;
+		}
+		System.out.println("Three judges, drop lowest: BulkScorer disagrees on " + differBulk
+				+ ", RacingScore1 on " + differ1 + ", RacingScore2 on " + differ2 + " of " + out.length);
+
+		// timings
+		for (int judges : new int[] { 3, 5, 7, 9 })
+		{
+			scores = randomScores(random, rows * judges);
+			out = new double[rows];
+			for (ScoringRule rule : rules)
+			{
+				ScoringRule.Evaluator generic = rule.generic(judges);
+				ScoringRule.Evaluator compiled = rule.compile(judges);
+				long genericTime = Long.MAX_VALUE, compiledTime = Long.MAX_VALUE;
+				for (int round = 0; round < 5; round++)
+				{
+					long start = System.nanoTime();
+					generic.evaluateAll(scores, out);
+					long middle = System.nanoTime();
+					compiled.evaluateAll(scores, out);
+					long end = System.nanoTime();
+					genericTime = Math.min(genericTime, middle - start);
+					compiledTime = Math.min(compiledTime, end - middle);
+				}
+				System.out.printf("%d judges, %-18s generic %6.1f M rows/s, compiled %6.1f M rows/s%n",
+						judges, rule + ":", rows * 1e3 / genericTime, rows * 1e3 / compiledTime);
+			}
+		}
+		return;
+	}
+
+	private static int[] randomScores(Random random, int count)
+	{
+		int[] scores = new int[count];
+		for (int i = 0; i < count; i++)
+			scores[i] = random.nextInt(BulkScorer.MAX_SCORE + 1);
+		return scores;
+	}
+
+} // end class